@@ -0,0 +1,79 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The game rule queries the server runs on every move
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+
+    @Param({Positions.START, Positions.MIDDLEGAME, Positions.ENDGAME, Positions.CHECKMATE})
+    public String position;
+
+    private ChessGame game;
+    private ChessPosition[] pieces;
+    private ChessMove move;
+    private final int[] moves = new int[PackedMove.MAX_MOVES];
+
+    @Setup
+    public void setup() {
+        game = Positions.game(position);
+        pieces = game.getBoard().getPieces(game.getTeamTurn()).toArray(new ChessPosition[0]);
+        int count = game.validMoves(moves);
+        move = (count > 0) ? PackedMove.toChessMove(moves[0]) : null;
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition piece : pieces) {
+            blackhole.consume(game.validMoves(piece));
+        }
+    }
+
+    @Benchmark
+    public int validMovesPacked() {
+        return game.validMoves(moves);
+    }
+
+    @Benchmark
+    public void makeMove() throws InvalidMoveException {
+        if (move != null) {
+            game.makeMove(move);
+            game.undoMove();
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public Boolean isOver() {
+        return game.isOver();
+    }
+}
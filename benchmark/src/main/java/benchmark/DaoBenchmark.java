@@ -0,0 +1,87 @@
+package benchmark;
+
+import chess.ChessGame;
+import dataaccess.DataAccessException;
+import dataaccess.MemAuthDAO;
+import dataaccess.MemGameDAO;
+import model.GameData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory DAOs hit from several request threads at once, the way Spark calls them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBenchmark {
+
+    private static final int GAMES = 100;
+
+    private final MemAuthDAO authDAO = new MemAuthDAO();
+    private final MemGameDAO gameDAO = new MemGameDAO();
+    private final int[] gameIDs = new int[GAMES];
+
+    @Setup
+    public void setup() throws DataAccessException {
+        authDAO.clear();
+        gameDAO.clear();
+        for (int i = 0; i < GAMES; i++) {
+            gameIDs[i] = gameDAO.createGame("game" + i);
+        }
+    }
+
+    // A whole login session: log in, authorize a request, look up the user and log out
+    @Benchmark
+    @Threads(4)
+    public String authSession() throws DataAccessException {
+        String authToken = authDAO.createAuthToken("user");
+        authDAO.verifyAuthToken(authToken);
+        String username = authDAO.getUsername(authToken);
+        authDAO.deleteAuthToken(authToken);
+        return username;
+    }
+
+    @Benchmark
+    @Group("games")
+    @GroupThreads(3)
+    public GameData getGame() throws DataAccessException {
+        return gameDAO.getGame(randomGameID());
+    }
+
+    @Benchmark
+    @Group("games")
+    @GroupThreads(1)
+    public List<GameData> listGames() throws DataAccessException {
+        return gameDAO.listGames();
+    }
+
+    @Benchmark
+    @Group("games")
+    @GroupThreads(1)
+    public void joinGame() throws DataAccessException {
+        gameDAO.updateGame(ChessGame.TeamColor.WHITE, randomGameID(), "user");
+    }
+
+    private int randomGameID() {
+        return gameIDs[ThreadLocalRandom.current().nextInt(GAMES)];
+    }
+}
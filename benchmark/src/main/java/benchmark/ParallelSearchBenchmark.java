@@ -0,0 +1,67 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.notation.Fen;
+import chess.perft.PerftPosition;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.SearchResult;
+import chess.search.TranspositionTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to reach a fixed depth with 1, 2, 4 and 8 search threads on the perft positions. The speedup with N threads
+ * is the 1 thread time divided by the N thread time; it needs at least N free cores to mean anything.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelSearchBenchmark {
+
+    @Param({"start", "kiwipete", "position3", "position4", "position5", "position6"})
+    public String position;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"8"})
+    public int depth;
+
+    private ChessGame game;
+    private TranspositionTable table;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String fen = PerftPosition.STANDARD.stream().filter(p -> p.name().equals(position)).findFirst()
+                .orElseThrow().fen();
+        game = Fen.read(fen);
+        table = new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES);
+    }
+
+    // Every run starts from an empty table, so no run is helped by the one before it
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth() {
+        return Search.bestMove(game, SearchLimits.depth(depth).withThreads(threads), table);
+    }
+}
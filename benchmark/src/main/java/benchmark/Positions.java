@@ -0,0 +1,28 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.notation.Fen;
+
+/**
+ * Representative positions for the benchmarks: the opening, a crowded middlegame, a sparse endgame and a mate
+ */
+final class Positions {
+
+    static final String START = "start";
+    static final String MIDDLEGAME = "middlegame";
+    static final String ENDGAME = "endgame";
+    static final String CHECKMATE = "checkmate";
+
+    private Positions() {
+    }
+
+    static ChessGame game(String name) {
+        return switch (name) {
+            case START -> new ChessGame();
+            case MIDDLEGAME -> Fen.read("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+            case ENDGAME -> Fen.read("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+            case CHECKMATE -> Fen.read("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+            default -> throw new IllegalArgumentException("Unknown position " + name);
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of the objects the server stores in the database and sends over the WebSocket, with Gson and with
+ * the binary game codec
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({Positions.START, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String position;
+
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private LoadGameMessage message;
+    private String gameJson;
+    private String messageJson;
+    private byte[] gameBytes;
+
+    @Setup
+    public void setup() {
+        game = Positions.game(position);
+        message = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, game);
+        gameJson = gson.toJson(game);
+        messageJson = gson.toJson(message);
+        gameBytes = ChessGameCodec.encode(game);
+    }
+
+    @Benchmark
+    public String serializeGame() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame deserializeGame() {
+        return gson.fromJson(gameJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public byte[] encodeGameBinary() {
+        return ChessGameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame decodeGameBinary() {
+        return ChessGameCodec.decode(gameBytes);
+    }
+
+    @Benchmark
+    public String serializeLoadGameMessage() {
+        return gson.toJson(message);
+    }
+
+    @Benchmark
+    public LoadGameMessage deserializeLoadGameMessage() {
+        return gson.fromJson(messageJson, LoadGameMessage.class);
+    }
+}
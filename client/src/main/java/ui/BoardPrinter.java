@@ -34,21 +34,21 @@ public class BoardPrinter {
             if (i % 2 == 0) {
                 for (int j = startCol; j - colStep != endCol; j += colStep) {
                     String backgroundColor = (j % 2 == 0) ? EscapeSequences.SET_BG_COLOR_DARK_GREY : EscapeSequences.SET_BG_COLOR_LIGHT_GREY;
-                    if (highlight != null && highlight.contains(new ChessPosition(i+1, j+1))) {
+                    if (highlight != null && highlight.contains(ChessPosition.of(i+1, j+1))) {
                         backgroundColor = (j % 2 == 0) ? EscapeSequences.SET_BG_COLOR_DARK_GREEN :
                                 EscapeSequences.SET_BG_COLOR_GREEN;
                     }
-                    System.out.print(backgroundColor + getPieceString(board.getPiece(new ChessPosition(i+1, j+1))));
+                    System.out.print(backgroundColor + getPieceString(board.getPiece(ChessPosition.of(i+1, j+1))));
                 }
             } else {
                 for (int j = startCol; j - colStep != endCol; j += colStep) {
                     String backgroundColor = (j % 2 != 0) ? EscapeSequences.SET_BG_COLOR_DARK_GREY :
                             EscapeSequences.SET_BG_COLOR_LIGHT_GREY;
-                    if (highlight != null && highlight.contains(new ChessPosition(i+1, j+1))) {
+                    if (highlight != null && highlight.contains(ChessPosition.of(i+1, j+1))) {
                         backgroundColor = (j % 2 != 0) ? EscapeSequences.SET_BG_COLOR_DARK_GREEN :
                             EscapeSequences.SET_BG_COLOR_GREEN;
                     }
-                    System.out.print(backgroundColor + getPieceString(board.getPiece(new ChessPosition(i+1, j+1))));
+                    System.out.print(backgroundColor + getPieceString(board.getPiece(ChessPosition.of(i+1, j+1))));
                 }
             }
             System.out.println(EscapeSequences.SET_BG_COLOR_BLACK + " " + (i + 1) + "\u2003" + EscapeSequences.RESET_BG_COLOR);
@@ -215,7 +215,7 @@ public class GameUI {
             int col = input.charAt(0) - 'a' + 1;
             int row = input.charAt(1) - '1' + 1;
             if (col > 0 && col < 9 && row > 0 && row < 9) {
-                return new ChessPosition(row, col);
+                return ChessPosition.of(row, col);
             } else {
                 System.out.println("Position must be in format [a-h][1-8].");
                 return null;
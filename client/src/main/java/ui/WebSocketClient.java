@@ -1,7 +1,9 @@
 package ui;
 
 import chess.ChessGame;
+import chess.ChessGameBinaryAdapter;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
@@ -17,7 +19,9 @@ import java.util.TimerTask;
 @ClientEndpoint
 public class WebSocketClient {
     private Session session;
-    private final Gson gson = new Gson();
+    // Reads games sent either as JSON or in the compact binary encoding
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameBinaryAdapter())
+            .create();
     private ChessGame game;
     public ChessGame.TeamColor teamColor = ChessGame.TeamColor.WHITE;
     private final GameUI gameUI;
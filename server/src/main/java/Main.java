@@ -1,11 +1,14 @@
 import chess.*;
 import server.Server;
 
+import java.util.Arrays;
+
 public class Main {
     public static void main(String[] args) {
         var piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         System.out.println("♕ 240 Chess Server: " + piece);
-        Server server = new Server();
+        // Pass --binary-games to store and send games in the compact binary encoding
+        Server server = new Server(Arrays.asList(args).contains("--binary-games"));
         server.run(8080);
     }
 }
\ No newline at end of file
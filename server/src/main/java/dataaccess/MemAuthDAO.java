@@ -2,12 +2,13 @@ package dataaccess;
 
 import model.AuthData;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemAuthDAO implements AuthDAO {
-    private static Map<String, AuthData> authentications = new HashMap<String, AuthData>();
+    // Request handlers run on several threads at once
+    private static Map<String, AuthData> authentications = new ConcurrentHashMap<String, AuthData>();
 
     @Override
     public void clear() throws DataAccessException {
@@ -4,13 +4,15 @@ import chess.ChessGame;
 import model.GameData;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MemGameDAO implements GameDAO {
-    private static Integer newID = 0;
-    private static Map<Integer, GameData> games = new HashMap<Integer, GameData>();
+    // Request handlers run on several threads at once
+    private static final AtomicInteger newID = new AtomicInteger();
+    private static Map<Integer, GameData> games = new ConcurrentHashMap<Integer, GameData>();
 
     @Override
     public void clear() throws DataAccessException {
@@ -19,9 +21,9 @@ public class MemGameDAO implements GameDAO {
 
     @Override
     public Integer createGame(String gameName) throws DataAccessException {
-        newID++;
-        games.put(newID, new GameData(newID, null, null, gameName, new ChessGame()));
-        return newID;
+        Integer gameID = newID.incrementAndGet();
+        games.put(gameID, new GameData(gameID, null, null, gameName, new ChessGame()));
+        return gameID;
     }
 
     @Override
@@ -1,6 +1,7 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessGameCodec;
 import com.google.gson.Gson;
 import model.GameData;
 
@@ -10,8 +11,15 @@ import java.sql.*;
 
 public class SqlGameDAO implements GameDAO {
     static int id;
+    // Store games with ChessGameCodec instead of JSON (games stored either way can always be read)
+    private final boolean binaryGames;
 
     public SqlGameDAO() {
+        this(false);
+    }
+
+    public SqlGameDAO(boolean binaryGames) {
+        this.binaryGames = binaryGames;
         try {
             id = getSize();
         } catch (Exception e) {
@@ -42,8 +50,7 @@ public class SqlGameDAO implements GameDAO {
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
             preparedStatement.setInt(1, id);
             preparedStatement.setString(2, gameName);
-            String chessGameJson = new Gson().toJson(new ChessGame());
-            preparedStatement.setString(3, chessGameJson);
+            preparedStatement.setString(3, writeGame(new ChessGame()));
             preparedStatement.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException("Error creating game: " + e.getMessage());
@@ -63,7 +70,7 @@ public class SqlGameDAO implements GameDAO {
                     String gameName = resultSet.getString("gameName");
                     String whiteUsername = resultSet.getString("whiteUsername");
                     String blackUsername = resultSet.getString("blackUsername");
-                    ChessGame chessGame = new Gson().fromJson(resultSet.getString("chessGame"), ChessGame.class);
+                    ChessGame chessGame = readGame(resultSet.getString("chessGame"));
                     return new GameData(gameIdResult, whiteUsername, blackUsername, gameName, chessGame);
                 }
             }
@@ -85,7 +92,7 @@ public class SqlGameDAO implements GameDAO {
                 String gameName = resultSet.getString("gameName");
                 String whiteUsername = resultSet.getString("whiteUsername");
                 String blackUsername = resultSet.getString("blackUsername");
-                ChessGame chessGame = new Gson().fromJson(resultSet.getString("chessGame"), ChessGame.class);
+                ChessGame chessGame = readGame(resultSet.getString("chessGame"));
                 games.add(new GameData(gameIdResult, whiteUsername, blackUsername, gameName, chessGame));
             }
         } catch (SQLException e) {
@@ -118,8 +125,7 @@ public class SqlGameDAO implements GameDAO {
         String sql = "UPDATE game SET chessGame = ? WHERE gameId = ?";
         try (Connection connection = DatabaseManager.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-            String chessGameJson = new Gson().toJson(game);
-            preparedStatement.setString(1, chessGameJson);
+            preparedStatement.setString(1, writeGame(game));
             preparedStatement.setInt(2, gameID);
             preparedStatement.executeUpdate();
         } catch (SQLException e) {
@@ -127,6 +133,22 @@ public class SqlGameDAO implements GameDAO {
         }
     }
 
+    private String writeGame(ChessGame game) {
+        return binaryGames ? ChessGameCodec.encodeBase64(game) : new Gson().toJson(game);
+    }
+
+    // JSON games are objects, anything else is a base64 binary game
+    private ChessGame readGame(String stored) throws DataAccessException {
+        if (stored == null || stored.startsWith("{")) {
+            return new Gson().fromJson(stored, ChessGame.class);
+        }
+        try {
+            return ChessGameCodec.decodeBase64(stored);
+        } catch (IllegalArgumentException e) {
+            throw new DataAccessException("Error reading game: " + e.getMessage());
+        }
+    }
+
     @Override
     public Integer getSize() throws DataAccessException {
         String sql = "SELECT COUNT(*) FROM game";
@@ -17,11 +17,21 @@ public class Server {
     private UserService userService;
     private GameService gameService;
     private final Gson gson = new Gson();
+    // Store games and send them to clients with ChessGameCodec instead of JSON
+    private final boolean binaryGames;
+
+    public Server() {
+        this(false);
+    }
+
+    public Server(boolean binaryGames) {
+        this.binaryGames = binaryGames;
+    }
 
     public int run(int desiredPort) {
 
         UserDAO userDAO = new SqlUserDAO();
-        GameDAO gameDAO = new SqlGameDAO();
+        GameDAO gameDAO = new SqlGameDAO(binaryGames);
         AuthDAO authDAO = new SqlAuthDAO();
 
         registerService = new RegisterService(userDAO, authDAO);
@@ -31,7 +41,7 @@ public class Server {
 
         Spark.port(desiredPort);
 
-        Spark.webSocket("/ws", new WebSocketServer(authDAO,gameDAO,userDAO));
+        Spark.webSocket("/ws", new WebSocketServer(authDAO, gameDAO, userDAO, binaryGames));
 
         Spark.staticFiles.location("web");
 
@@ -1,10 +1,12 @@
 package server;
 
 import chess.ChessGame;
+import chess.ChessGameBinaryAdapter;
 import chess.ChessMove;
 import chess.ChessPosition;
 import chess.InvalidMoveException;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import dataaccess.AuthDAO;
 import dataaccess.DataAccessException;
 import dataaccess.GameDAO;
@@ -28,11 +30,20 @@ public class WebSocketServer {
     private GameDAO gameDAO;
     private AuthDAO authDAO;
     private static final Map<Integer, List<Session>> SESSIONS = new HashMap<>();
+    // Serializes LOAD_GAME messages, with games either as JSON objects or as compact binary strings
+    private final Gson gameGson;
 
     public WebSocketServer(AuthDAO authDAO, GameDAO gameDAO, UserDAO userDAO) {
+        this(authDAO, gameDAO, userDAO, false);
+    }
+
+    public WebSocketServer(AuthDAO authDAO, GameDAO gameDAO, UserDAO userDAO, boolean binaryGames) {
         this.userDAO = userDAO;
         this.gameDAO = gameDAO;
         this.authDAO = authDAO;
+        this.gameGson = binaryGames
+                ? new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameBinaryAdapter()).create()
+                : new Gson();
     }
 
     @OnWebSocketConnect
@@ -120,7 +131,7 @@ public class WebSocketServer {
         broadcastMessageExclude(json, gameID, session);
 
         LoadGameMessage gameMessage = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, gameData.game());
-        String jsonGame = new Gson().toJson(gameMessage);
+        String jsonGame = gameGson.toJson(gameMessage);
         sendMessage(jsonGame, session);
     }
 
@@ -166,7 +177,7 @@ public class WebSocketServer {
             game.makeMove(move);
             gameDAO.updateChessGame(game, gameID);
             LoadGameMessage msgLoad = new LoadGameMessage(ServerMessage.ServerMessageType.LOAD_GAME, game);
-            String json = new Gson().toJson(msgLoad);
+            String json = gameGson.toJson(msgLoad);
             broadcastMessage(json, gameID);
 
             NotificationMessage msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, color +
@@ -174,23 +185,30 @@ public class WebSocketServer {
                     + formatPosition(move.getEndPosition()));
             json = new Gson().toJson(msg);
             broadcastMessageExclude(json, gameID, session);
-            if (game.isInCheckmate(opponent)) {
-                msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, opponent +
-                        " user " + opponentName + " is in checkmate, " + color + " user " + username + " wins");
-                json = new Gson().toJson(msg);
-                broadcastMessage(json, gameID);
-            } else if (game.isInCheck(opponent)) {
-                msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, opponent +
-                        " user " + opponentName + " is in check");
-                json = new Gson().toJson(msg);
-                broadcastMessage(json, gameID);
-                game.setGameOver(true);
-            } else if (game.isInStalemate(opponent) || game.isInStalemate(color)) {
-                msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "game ends in " +
-                        "stalemate");
-                json = new Gson().toJson(msg);
-                broadcastMessage(json, gameID);
-                game.setGameOver(true);
+            // makeMove already worked out the status for the opponent, who is now the team to move
+            switch (game.getGameStatus()) {
+                case CHECKMATE:
+                    msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, opponent +
+                            " user " + opponentName + " is in checkmate, " + color + " user " + username + " wins");
+                    broadcastMessage(new Gson().toJson(msg), gameID);
+                    break;
+                case CHECK:
+                    msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, opponent +
+                            " user " + opponentName + " is in check");
+                    broadcastMessage(new Gson().toJson(msg), gameID);
+                    break;
+                case STALEMATE:
+                    msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "game ends in " +
+                            "stalemate");
+                    broadcastMessage(new Gson().toJson(msg), gameID);
+                    break;
+                case DRAW:
+                    msg = new NotificationMessage(ServerMessage.ServerMessageType.NOTIFICATION, "game ends in " +
+                            "a draw");
+                    broadcastMessage(new Gson().toJson(msg), gameID);
+                    break;
+                default:
+                    break;
             }
         } catch (InvalidMoveException e) {
             ErrorMessage msg = new ErrorMessage(ServerMessage.ServerMessageType.ERROR, "invalid move");
@@ -281,7 +299,7 @@ public class WebSocketServer {
                     + " user " + username + " has resigned, " + opponent + " user " + opponentName + " wins");
             String json = new Gson().toJson(msg);
             broadcastMessage(json, gameID);
-            game.setGameOver(true);
+            game.resign(color);
             gameDAO.updateChessGame(game, gameID);
         }
     }
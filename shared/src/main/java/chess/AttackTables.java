@@ -0,0 +1,214 @@
+package chess;
+
+/**
+ * Precomputed attack bitboards for every piece type, built once when the class is loaded.
+ * <p>
+ * Knights, kings and pawns use a plain lookup per square. Bishops and rooks use magic bitboards: the blockers on a
+ * slider's relevant squares are multiplied by a per-square magic number so the top bits of the product index a
+ * table holding the attack set for exactly that blocker arrangement. Queens combine the two.
+ */
+public final class AttackTables {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+    private static final int[][] KNIGHT_JUMPS = {{2, 1}, {-2, 1}, {2, -1}, {-2, -1}, {1, -2}, {-1, -2}, {1, 2},
+            {-1, 2}};
+    private static final int[][] KING_STEPS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}, {1, 0}, {-1, 0}, {0, -1}, {0, 1}};
+
+    // Magic multipliers found offline by a seeded random search over sparse candidates; the table for each square
+    // is built from them at class load, which fails fast if a magic ever maps two different attack sets together
+    private static final long[] ROOK_MAGIC_NUMBERS = {
+            0x7080024000108620L, 0x0040200010004000L, 0x0100081020004500L, 0x3880048110000801L,
+            0x4200200200080410L, 0x2400900400082002L, 0x45000B000F860004L, 0x220004038040A116L,
+            0x010280002084400AL, 0x0026402004401000L, 0x0045002002110048L, 0x0043002300100009L,
+            0x004280801C002800L, 0x4001800401801200L, 0x0022000438A20001L, 0x408100120040A100L,
+            0x0160808000401020L, 0x0020004008205000L, 0x0000430010200300L, 0x4001818008005000L,
+            0x1D04008008008004L, 0x6002080110204004L, 0x2009040001081002L, 0x8094020020804401L,
+            0x00C00049800080A7L, 0x80015000C0002000L, 0xC000220200108040L, 0x00A8018480100108L,
+            0x0108000880800400L, 0x0A00040080020080L, 0x1A01080400104A31L, 0x000200A200011044L,
+            0x4080006001400040L, 0x240080400C802000L, 0x880500104100200AL, 0x0000080284801000L,
+            0x0900800800800401L, 0x5002018402001008L, 0x0000488104001002L, 0x8402048862000411L,
+            0x0000802040008000L, 0x2C20500020004000L, 0x001A004080120020L, 0x80800A0040220010L,
+            0x0204008008008004L, 0x1218020004008080L, 0x0140025118040050L, 0x0824030C40820024L,
+            0x0040220081005200L, 0x0040004421108300L, 0x4420041001208480L, 0x0862082010420200L,
+            0x0D02001861100E00L, 0x8126001008040200L, 0x0064110218D00400L, 0x0427000482284100L,
+            0x0000108040220102L, 0x0000804020160102L, 0x0000400812008022L, 0x0000050010002009L,
+            0x0102001108604402L, 0x1002000110844802L, 0x0401001200440781L, 0x0281000045802203L
+    };
+    private static final long[] BISHOP_MAGIC_NUMBERS = {
+            0x0420420088048088L, 0x0020A242184102C0L, 0x4208084043861180L, 0x0054251201004000L,
+            0x0844050400005004L, 0x0515042044040004L, 0x4021010802404004L, 0x3000940488081800L,
+            0x0000C00401020208L, 0x01022011112A0884L, 0x0D80100440404000L, 0x0520044040800400L,
+            0x8444020210002040L, 0x8008028820180200L, 0x0180040A01300800L, 0x0000842208048480L,
+            0x0910004004083084L, 0x00081802B8010420L, 0x00140428004C0008L, 0x0008000682004610L,
+            0x0100820400E00200L, 0x000B000811089000L, 0x4812024401240200L, 0x820040103A080404L,
+            0x8024100422200120L, 0x001030B40C234604L, 0x0020480044002400L, 0x0040040085101020L,
+            0x0040840105802000L, 0x4210010000241101L, 0x1202040200410802L, 0x4040608000420802L,
+            0x0218048401512000L, 0xE008080200090202L, 0x8004060110180040L, 0x0000A00800150104L,
+            0x1C01020400020500L, 0x0001080A00002206L, 0x8012040860140204L, 0x010C004202044329L,
+            0x1084108288091031L, 0x4084046202002800L, 0x2001004232001002L, 0x2000104208000080L,
+            0x2108200414000040L, 0x0001200089010A81L, 0x3219A20492004400L, 0x0010148107010148L,
+            0x4402080402080080L, 0x4210844118600100L, 0x4800050401040410L, 0x0800006020880010L,
+            0x30080020020C80C0L, 0x02C446040806040CL, 0x0010021001021044L, 0x4002182801015202L,
+            0x0409820800A2080AL, 0x004000C608050808L, 0x0800008044040412L, 0x0410010280840408L,
+            0x1210A02012420200L, 0x8302400404084200L, 0x020090042840C400L, 0x0808100088004086L
+    };
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+
+    // Indexed by from * 64 + to, both zero unless the two squares share a row, column or diagonal
+    private static final long[] BETWEEN = new long[64 * 64];
+    private static final long[] LINE = new long[64 * 64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = walk(square, KNIGHT_JUMPS, 0L, false);
+            KING_ATTACKS[square] = walk(square, KING_STEPS, 0L, false);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = walk(square, new int[][]{{1, -1}, {1, 1}}, 0L,
+                    false);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = walk(square, new int[][]{{-1, -1}, {-1, 1}},
+                    0L, false);
+            ROOK_MAGICS[square] = buildMagic(square, ROOK_DIRECTIONS, ROOK_MAGIC_NUMBERS[square]);
+            BISHOP_MAGICS[square] = buildMagic(square, BISHOP_DIRECTIONS, BISHOP_MAGIC_NUMBERS[square]);
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                long fromBit = Bitboards.bit(from);
+                long toBit = Bitboards.bit(to);
+                if (from == to) {
+                    continue;
+                }
+                if ((rookAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from * 64 + to] = rookAttacks(from, toBit) & rookAttacks(to, fromBit);
+                    LINE[from * 64 + to] = (rookAttacks(from, 0L) & rookAttacks(to, 0L)) | fromBit | toBit;
+                } else if ((bishopAttacks(from, 0L) & toBit) != 0) {
+                    BETWEEN[from * 64 + to] = bishopAttacks(from, toBit) & bishopAttacks(to, fromBit);
+                    LINE[from * 64 + to] = (bishopAttacks(from, 0L) & bishopAttacks(to, 0L)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given team standing on square attacks
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied) | ROOK_MAGICS[square].attacks(occupied);
+    }
+
+    /**
+     * @return the squares strictly between two squares on a shared row, column or diagonal, otherwise 0
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from * 64 + to];
+    }
+
+    /**
+     * @return the whole row, column or diagonal through two squares (edge to edge), or 0 if they are not aligned
+     */
+    public static long line(int from, int to) {
+        return LINE[from * 64 + to];
+    }
+
+    /**
+     * @return the squares a piece of the given type attacks from square, including squares holding own pieces
+     */
+    public static long attacks(ChessPiece.PieceType type, ChessGame.TeamColor color, int square, long occupied) {
+        return switch (type) {
+            case KING -> KING_ATTACKS[square];
+            case QUEEN -> queenAttacks(square, occupied);
+            case BISHOP -> bishopAttacks(square, occupied);
+            case KNIGHT -> KNIGHT_ATTACKS[square];
+            case ROOK -> rookAttacks(square, occupied);
+            case PAWN -> PAWN_ATTACKS[color.ordinal()][square];
+        };
+    }
+
+    // Squares reached from square along each direction, stopping on (and including) the first blocker
+    private static long walk(int square, int[][] directions, long occupied, boolean slide) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+                long bit = Bitboards.bit(Bitboards.square(row, col));
+                attacks |= bit;
+                if (!slide || (occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    // Squares whose occupancy can change a slider's attacks: its rays without the final edge square
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (row + direction[0] >= 1 && row + direction[0] <= 8 && col + direction[1] >= 1
+                    && col + direction[1] <= 8) {
+                mask |= Bitboards.bit(Bitboards.square(row, col));
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static Magic buildMagic(int square, int[][] directions, long magic) {
+        long mask = relevantMask(square, directions);
+        int shift = 64 - Long.bitCount(mask);
+        long[] table = new long[1 << Long.bitCount(mask)];
+
+        // Enumerate every subset of the mask (Carry-Rippler trick)
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magic) >>> shift);
+            long attacks = walk(square, directions, subset, true);
+            if (table[index] != 0L && table[index] != attacks) {
+                throw new IllegalStateException("Bad magic for square " + square);
+            }
+            table[index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0L);
+        return new Magic(mask, magic, shift, table);
+    }
+
+    private record Magic(long mask, long magic, int shift, long[] table) {
+        long attacks(long occupied) {
+            return table[(int) (((occupied & mask) * magic) >>> shift)];
+        }
+    }
+}
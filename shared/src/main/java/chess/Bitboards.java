@@ -0,0 +1,69 @@
+package chess;
+
+/**
+ * Square numbering and bitboard helpers shared by the board and move generation.
+ * <p>
+ * Squares are numbered 0-63 with a1 = 0, h1 = 7 and h8 = 63, so bit n of a bitboard stands for square n.
+ * Pieces are numbered 0-11 by team and type (see {@link #pieceIndex}).
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+    // b1, a2 and every other square of the same color
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    public static final int NO_PIECE = -1;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Bitboards() {
+    }
+
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return the row (1-8) of a square
+     */
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * @return the column (1-8) of a square
+     */
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(row(square), column(square));
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * @return the piece index for a team and type, WHITE pieces are 0-5 and BLACK pieces 6-11
+     */
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    public static ChessGame.TeamColor colorOf(int piece) {
+        return piece < 6 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    public static ChessPiece.PieceType typeOf(int piece) {
+        return TYPES[piece % 6];
+    }
+}
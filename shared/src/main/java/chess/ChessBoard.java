@@ -1,10 +1,12 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Objects;
 
+import static chess.Bitboards.NO_PIECE;
 import static java.lang.Math.abs;
 
 /**
@@ -13,97 +15,420 @@ import static java.lang.Math.abs;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoardAdapter.class)
 public class ChessBoard {
 
-    private ChessPosition capturedPosition = null;
+    // Piece values for static exchange evaluation, indexed by type ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] EXCHANGE_VALUES = {20_000, 900, 330, 320, 500, 100};
+    private static final int KING = ChessPiece.PieceType.KING.ordinal();
+    private static final ChessPiece.PieceType[] EXCHANGE_ORDER = {ChessPiece.PieceType.PAWN,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING};
+
+    // One bitboard per piece index, plus occupancy per team and for the whole board
+    private final long[] pieceBitboards = new long[12];
+    private final long[] teamBitboards = new long[2];
+    private long occupied;
+
+    // Piece index on every square (NO_PIECE if empty) so getPiece never has to search the bitboards
+    private final byte[] mailbox = new byte[64];
+
+    // Square of each team's king, or -1 if it has none, kept up to date as kings are put down and picked up
+    private final int[] kingSquares = {-1, -1};
+
+    // Zobrist key of the pieces on the board, updated as pieces are put down and picked up
+    private long zobristKey;
+
+    // Running evaluation sums from PieceSquareTables, kept up to date the same way as the key
+    private int middlegameScore;
+    private int endgameScore;
+    private int phase;
 
-    ChessPiece[][] squares;
+    // Scratch space for staticExchange, one entry per capture in the longest possible exchange
+    private final int[] exchangeGains = new int[33];
 
     public ChessBoard() {
-        squares = new ChessPiece[8][8];
+        Arrays.fill(mailbox, (byte) NO_PIECE);
     }
 
+    /**
+     * Makes a move on the board without checking that it is valid
+     *
+     * @return the piece captured on the end square, the team's own rook if the move castled, or null otherwise.
+     * En Passant returns null too, so {@link #undoMove(ChessMove, ChessPiece)} can tell it from a normal capture
+     */
     public ChessPiece doMove(ChessMove move) {
-        ChessPiece piece;
-        ChessPiece capturedPiece = getPiece(move.getEndPosition());
-        capturedPosition = move.getEndPosition();
-        if (move.getPromotionPiece() != null) {
-            piece = new ChessPiece(this.getPiece(move.getStartPosition()).getTeamColor(), move.getPromotionPiece());
-        } else {
-            piece = this.getPiece(move.getStartPosition());
-        }
-
-        // Check if En Passant or Castling
-        switch (this.getPiece(move.getStartPosition()).getPieceType()) {
-            case PAWN:
-                // If En Passant capture make sure to erase piece in capture position
-                if (abs(move.getStartPosition().getColumn() - move.getEndPosition().getColumn()) > 0 && this.getPiece(
-                        move.getEndPosition()) == null) {
-                    capturedPosition = new ChessPosition(move.getStartPosition().getRow(),
-                            move.getEndPosition().getColumn());
-                    capturedPiece = this.getPiece(capturedPosition);
-                    this.addPiece(capturedPosition, null);
-                }
-                break;
-            case KING:
-                // Castling move (set captured piece to own rook for easier implementation)
-                if (abs(move.getStartPosition().getColumn() - move.getEndPosition().getColumn()) > 1) {
-                    if (move.getEndPosition().getColumn() == 3) {
-                        capturedPosition = new ChessPosition(
-                                (piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : 8), 1);
-                        capturedPiece = this.getPiece(capturedPosition);
-                        this.addPiece(new ChessPosition((piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : 8), 4),
-                                capturedPiece);
-                        this.addPiece(capturedPosition, null);
-                    } else if (move.getEndPosition().getColumn() == 7) {
-                        capturedPosition = new ChessPosition(
-                                (piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : 8), 8);
-                        capturedPiece = this.getPiece(capturedPosition);
-                        this.addPiece(new ChessPosition((piece.getTeamColor() == ChessGame.TeamColor.WHITE ? 1 : 8), 6),
-                                capturedPiece);
-                        this.addPiece(capturedPosition, null);
-                    }
-                }
-                break;
-            default:
-                break;
+        int packed = pack(move);
+        int rook = NO_PIECE;
+        if (PackedMove.flag(packed) == PackedMove.CASTLE) {
+            // Castling move (set captured piece to own rook for easier implementation)
+            rook = mailbox[castleRookFrom(PackedMove.to(packed))];
+        }
+        int capturedPiece = doMove(packed);
+        if (rook != NO_PIECE) {
+            return ChessPiece.of(rook);
+        }
+        if (capturedPiece == NO_PIECE || PackedMove.flag(packed) == PackedMove.EN_PASSANT) {
+            return null;
+        }
+        return ChessPiece.of(capturedPiece);
+    }
+
+    /**
+     * Takes back a move made with {@link #doMove(ChessMove)}, working out from the board whether it castled or took
+     * En Passant
+     *
+     * @param capturedPiece the piece doMove returned
+     */
+    public void undoMove(ChessMove move, ChessPiece capturedPiece) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        int piece = mailbox[to];
+        int flag = PackedMove.NORMAL;
+        int captured = NO_PIECE;
+        if (piece != NO_PIECE && Bitboards.typeOf(piece) == ChessPiece.PieceType.KING
+                && abs(Bitboards.column(from) - Bitboards.column(to)) == 2) {
+            flag = PackedMove.CASTLE;
+        } else if (piece != NO_PIECE && Bitboards.typeOf(piece) == ChessPiece.PieceType.PAWN
+                && Bitboards.column(from) != Bitboards.column(to) && capturedPiece == null) {
+            flag = PackedMove.EN_PASSANT;
+            captured = Bitboards.pieceIndex(Bitboards.colorOf(piece) == ChessGame.TeamColor.WHITE
+                    ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        } else if (capturedPiece != null) {
+            captured = Bitboards.pieceIndex(capturedPiece.getTeamColor(), capturedPiece.getPieceType());
         }
+        undoMove(PackedMove.encode(from, to, move.getPromotionPiece(), flag), captured);
+    }
 
-        this.addPiece(move.getEndPosition(), piece);
-        this.addPiece(move.getStartPosition(), null);
+    /**
+     * Makes a packed move on the board without checking that it is valid
+     *
+     * @param move the packed move, including its flag for En Passant and Castling
+     * @return the index of the captured piece, or {@link Bitboards#NO_PIECE} if nothing was captured
+     */
+    public int doMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = mailbox[from];
+        int capturedPiece;
+
+        switch (PackedMove.flag(move)) {
+            case PackedMove.EN_PASSANT -> {
+                int capturedSquare = (from & ~7) | (to & 7);
+                capturedPiece = mailbox[capturedSquare];
+                removePiece(capturedSquare);
+            }
+            case PackedMove.CASTLE -> {
+                capturedPiece = NO_PIECE;
+                movePiece(castleRookFrom(to), castleRookTo(to));
+            }
+            default -> {
+                capturedPiece = mailbox[to];
+                removePiece(to);
+            }
+        }
+
+        removePiece(from);
+        if (PackedMove.isPromotion(move)) {
+            piece = Bitboards.pieceIndex(Bitboards.colorOf(piece), PackedMove.promotion(move));
+        }
+        putPiece(to, piece);
         return capturedPiece;
     }
 
-    public void undoMove(ChessMove move, ChessPiece capturedPiece) {
-        ChessPiece piece = this.getPiece(move.getEndPosition());
-        this.addPiece(move.getStartPosition(), piece);
-        this.addPiece(move.getEndPosition(), null);
-        this.addPiece(capturedPosition, capturedPiece);
-
-        // If move was Castling make sure to erase rook
-        if (piece.getPieceType() == ChessPiece.PieceType.KING && abs(
-                move.getEndPosition().getColumn() - move.getStartPosition().getColumn()) > 1) {
-            if (move.getEndPosition().getColumn() == 3) {
-                this.addPiece(new ChessPosition(move.getStartPosition().getRow(), 4), null);
-            } else {
-                this.addPiece(new ChessPosition(move.getStartPosition().getRow(), 6), null);
+    /**
+     * Takes back a packed move made with {@link #doMove(int)}
+     *
+     * @param move          the packed move
+     * @param capturedPiece the piece index doMove returned
+     */
+    public void undoMove(int move, int capturedPiece) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = mailbox[to];
+        if (PackedMove.isPromotion(move)) {
+            piece = Bitboards.pieceIndex(Bitboards.colorOf(piece), ChessPiece.PieceType.PAWN);
+        }
+        removePiece(to);
+        putPiece(from, piece);
+
+        switch (PackedMove.flag(move)) {
+            case PackedMove.EN_PASSANT -> putPiece((from & ~7) | (to & 7), capturedPiece);
+            case PackedMove.CASTLE -> movePiece(castleRookTo(to), castleRookFrom(to));
+            default -> {
+                if (capturedPiece != NO_PIECE) {
+                    putPiece(to, capturedPiece);
+                }
             }
         }
     }
 
+    /**
+     * Packs a move, working out from the board whether it is En Passant, Castling or a pawn's double push
+     */
+    public int pack(ChessMove move) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        int flag = PackedMove.NORMAL;
+        int piece = mailbox[from];
+        if (piece != NO_PIECE) {
+            switch (Bitboards.typeOf(piece)) {
+                case PAWN:
+                    if (abs(to - from) == 16) {
+                        flag = PackedMove.DOUBLE_PUSH;
+                    } else if (abs(Bitboards.column(from) - Bitboards.column(to)) > 0 && mailbox[to] == NO_PIECE) {
+                        flag = PackedMove.EN_PASSANT;
+                    }
+                    break;
+                case KING:
+                    if (abs(Bitboards.column(from) - Bitboards.column(to)) > 1
+                            && (Bitboards.column(to) == 3 || Bitboards.column(to) == 7)) {
+                        flag = PackedMove.CASTLE;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return PackedMove.encode(from, to, move.getPromotionPiece(), flag);
+    }
+
+    // Rook squares for a castling move, given the square the king lands on
+    static int castleRookFrom(int kingTo) {
+        return (kingTo & 7) == 2 ? kingTo - 2 : kingTo + 1;
+    }
+
+    static int castleRookTo(int kingTo) {
+        return (kingTo & 7) == 2 ? kingTo + 1 : kingTo - 1;
+    }
+
     // Used to get the positions of all pieces on a team (used in calculating check)
     public Collection<ChessPosition> getPieces(ChessGame.TeamColor teamColor) {
-        Collection<ChessPosition> pieces = new ArrayList<>();
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (squares[i][j] != null && teamColor == squares[i][j].getTeamColor()) {
-                    pieces.add(new ChessPosition(i + 1, j + 1));
-                }
-            }
+        long team = teamBitboards[teamColor.ordinal()];
+        Collection<ChessPosition> pieces = new ArrayList<>(Long.bitCount(team));
+        for (long bits = team; bits != 0; bits &= bits - 1) {
+            pieces.add(Bitboards.position(Long.numberOfTrailingZeros(bits)));
         }
         return pieces;
     }
 
+    /**
+     * Writes the squares of a team's pieces into a buffer, lowest square first. The team's bitboard already lists
+     * its pieces, so this visits only the occupied squares and allocates nothing.
+     *
+     * @param squares buffer at least as long as the team has pieces, 16 in a real game
+     * @return the number of squares written
+     */
+    public int getPieceSquares(ChessGame.TeamColor teamColor, int[] squares) {
+        int count = 0;
+        for (long bits = teamBitboards[teamColor.ordinal()]; bits != 0; bits &= bits - 1) {
+            squares[count++] = Long.numberOfTrailingZeros(bits);
+        }
+        return count;
+    }
+
+    /**
+     * @return the square of the team's king, or -1 if it has none
+     */
+    public int getKingSquare(ChessGame.TeamColor teamColor) {
+        return kingSquares[teamColor.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given team and type
+     */
+    public long getBitboard(ChessGame.TeamColor teamColor, ChessPiece.PieceType type) {
+        return pieceBitboards[Bitboards.pieceIndex(teamColor, type)];
+    }
+
+    /**
+     * @return bitboard of every square holding a piece of the given team
+     */
+    public long getTeamBitboard(ChessGame.TeamColor teamColor) {
+        return teamBitboards[teamColor.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on the board, without any game state such as whose turn it is
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return the material and piece-square score of the board for the middlegame, from WHITE's point of view
+     */
+    public int getMiddlegameScore() {
+        return middlegameScore;
+    }
+
+    /**
+     * @return the material and piece-square score of the board for the endgame, from WHITE's point of view
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * @return the game phase, from {@link PieceSquareTables#MAX_PHASE} or more with all pieces on the board down
+     * to 0 with only kings and pawns
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return the piece index on a square, or {@link Bitboards#NO_PIECE} if it is empty
+     */
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    /**
+     * Determines if any piece of a team attacks a square, working backwards from the square: a square is attacked by
+     * a knight exactly when a knight standing on it would attack that knight, and likewise for every other piece.
+     *
+     * @param position the square to test
+     * @param byColor  the attacking team
+     * @return True if a piece of byColor attacks the square
+     */
+    public boolean isSquareAttacked(ChessPosition position, ChessGame.TeamColor byColor) {
+        return isSquareAttacked(Bitboards.square(position), byColor, occupied);
+    }
+
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor byColor) {
+        return isSquareAttacked(square, byColor, occupied);
+    }
+
+    /**
+     * Same as {@link #isSquareAttacked(int, ChessGame.TeamColor)}, but with sliding pieces blocked only by the
+     * squares in occupied
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor byColor, long occupied) {
+        int base = byColor.ordinal() * 6;
+        ChessGame.TeamColor defender = (byColor == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK :
+                ChessGame.TeamColor.WHITE;
+        if ((AttackTables.pawnAttacks(defender, square) & pieceBitboards[base + ChessPiece.PieceType.PAWN.ordinal()])
+                != 0) {
+            return true;
+        }
+        if ((AttackTables.knightAttacks(square) & pieceBitboards[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0) {
+            return true;
+        }
+        if ((AttackTables.kingAttacks(square) & pieceBitboards[base + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        long queens = pieceBitboards[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long rooks = pieceBitboards[base + ChessPiece.PieceType.ROOK.ordinal()] | queens;
+        if (rooks != 0 && (AttackTables.rookAttacks(square, occupied) & rooks) != 0) {
+            return true;
+        }
+        long bishops = pieceBitboards[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens;
+        return bishops != 0 && (AttackTables.bishopAttacks(square, occupied) & bishops) != 0;
+    }
+
+    /**
+     * @return bitboard of the pieces of both teams that attack a square, seeing through any piece not in occupied
+     */
+    long attackersTo(int square, long occupied) {
+        long queens = bothTeams(ChessPiece.PieceType.QUEEN);
+        return (AttackTables.pawnAttacks(ChessGame.TeamColor.BLACK, square)
+                & getBitboard(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN))
+                | (AttackTables.pawnAttacks(ChessGame.TeamColor.WHITE, square)
+                & getBitboard(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN))
+                | (AttackTables.knightAttacks(square) & bothTeams(ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.kingAttacks(square) & bothTeams(ChessPiece.PieceType.KING))
+                | (AttackTables.rookAttacks(square, occupied) & (bothTeams(ChessPiece.PieceType.ROOK) | queens))
+                | (AttackTables.bishopAttacks(square, occupied) & (bothTeams(ChessPiece.PieceType.BISHOP) | queens));
+    }
+
+    private long bothTeams(ChessPiece.PieceType type) {
+        return pieceBitboards[type.ordinal()] | pieceBitboards[6 + type.ordinal()];
+    }
+
+    /**
+     * @return the value of a piece in centipawns as {@link #staticExchange} counts it
+     */
+    public static int exchangeValue(int piece) {
+        return EXCHANGE_VALUES[piece % 6];
+    }
+
+    /**
+     * Static exchange evaluation: works out what a capture wins or loses in material if both teams keep recapturing
+     * on its end square with their least valuable piece, each stopping as soon as going on would lose more. Pieces
+     * uncovered as others leave the square (such as a rook behind a rook) join in, but pins are ignored.
+     *
+     * @param move a packed move for the piece on its start square, normally a capture
+     * @return the material gained in centipawns, negative if the piece making the move is lost for less
+     */
+    public int staticExchange(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = mailbox[from];
+        long occupied = this.occupied ^ Bitboards.bit(from);
+        int[] gain = exchangeGains;
+
+        if (PackedMove.flag(move) == PackedMove.EN_PASSANT) {
+            gain[0] = EXCHANGE_VALUES[ChessPiece.PieceType.PAWN.ordinal()];
+            occupied ^= Bitboards.bit((from & ~7) | (to & 7));
+        } else {
+            gain[0] = (mailbox[to] == NO_PIECE) ? 0 : EXCHANGE_VALUES[mailbox[to] % 6];
+        }
+        // The value standing on the square, which the next capture wins
+        int onSquare = EXCHANGE_VALUES[piece % 6];
+        if (PackedMove.isPromotion(move)) {
+            int promoted = EXCHANGE_VALUES[PackedMove.promotion(move).ordinal()];
+            gain[0] += promoted - onSquare;
+            onSquare = promoted;
+        }
+
+        int side = piece / 6;
+        long attackerBit = 0L;
+        int depth = 0;
+        while (true) {
+            depth++;
+            // What the team that just captured has won if the piece it captured with is taken in turn
+            gain[depth] = onSquare - gain[depth - 1];
+            occupied ^= attackerBit;
+            long attackers = attackersTo(to, occupied) & occupied;
+            side = 1 - side;
+            long ours = attackers & teamBitboards[side];
+            if (ours == 0) {
+                break;
+            }
+            int attacker = leastValuableAttacker(ours, side);
+            // A king can only take last, when nothing is left to take it back
+            if (Bitboards.typeOf(attacker) == ChessPiece.PieceType.KING
+                    && (attackers & teamBitboards[1 - side]) != 0) {
+                break;
+            }
+            onSquare = EXCHANGE_VALUES[attacker % 6];
+            attackerBit = Long.lowestOneBit(ours & pieceBitboards[attacker]);
+        }
+        // Each team stops capturing as soon as carrying on would leave it worse off
+        while (--depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
+    }
+
+    private int leastValuableAttacker(long attackers, int side) {
+        int base = side * 6;
+        for (ChessPiece.PieceType type : EXCHANGE_ORDER) {
+            if ((attackers & pieceBitboards[base + type.ordinal()]) != 0) {
+                return base + type.ordinal();
+            }
+        }
+        throw new IllegalStateException("No attacker among " + Long.toHexString(attackers));
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -111,7 +436,17 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        int square = Bitboards.square(position);
+        removePiece(square);
+        if (piece != null) {
+            putPiece(square, Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
+    }
+
+    // Adds a piece by square and piece index, for decoders that already work in those terms
+    void addPiece(int square, int piece) {
+        removePiece(square);
+        putPiece(square, piece);
     }
 
     /**
@@ -122,7 +457,8 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return squares[position.getRow() - 1][position.getColumn() - 1];
+        int piece = mailbox[Bitboards.square(position)];
+        return piece == NO_PIECE ? null : ChessPiece.of(piece);
     }
 
     /**
@@ -130,28 +466,71 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        squares = new ChessPiece[8][8];
-        squares[0][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        squares[0][1] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        squares[0][2] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        squares[0][3] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-        squares[0][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        squares[0][5] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        squares[0][6] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        squares[0][7] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        for (int i = 0; i < 8; i++) {
-            squares[1][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        }
-        squares[7][0] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        squares[7][1] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        squares[7][2] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        squares[7][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-        squares[7][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        squares[7][5] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        squares[7][6] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        squares[7][7] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        clear();
+        ChessPiece.PieceType[] backRow = {ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT,
+                ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING,
+                ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK};
         for (int i = 0; i < 8; i++) {
-            squares[6][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            putPiece(i, Bitboards.pieceIndex(ChessGame.TeamColor.WHITE, backRow[i]));
+            putPiece(8 + i, Bitboards.pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            putPiece(48 + i, Bitboards.pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            putPiece(56 + i, Bitboards.pieceIndex(ChessGame.TeamColor.BLACK, backRow[i]));
+        }
+    }
+
+    private void clear() {
+        Arrays.fill(pieceBitboards, 0L);
+        Arrays.fill(teamBitboards, 0L);
+        occupied = 0L;
+        zobristKey = 0L;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        Arrays.fill(mailbox, (byte) NO_PIECE);
+        Arrays.fill(kingSquares, -1);
+    }
+
+    private void putPiece(int square, int piece) {
+        long bit = Bitboards.bit(square);
+        pieceBitboards[piece] |= bit;
+        teamBitboards[piece / 6] |= bit;
+        occupied |= bit;
+        mailbox[square] = (byte) piece;
+        zobristKey ^= Zobrist.piece(piece, square);
+        middlegameScore += PieceSquareTables.middlegame(piece, square);
+        endgameScore += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.phase(piece);
+        if (piece % 6 == KING) {
+            kingSquares[piece / 6] = square;
+        }
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = mailbox[from];
+        if (piece != NO_PIECE) {
+            removePiece(from);
+            putPiece(to, piece);
+        }
+    }
+
+    private void removePiece(int square) {
+        int piece = mailbox[square];
+        if (piece == NO_PIECE) {
+            return;
+        }
+        long bit = Bitboards.bit(square);
+        pieceBitboards[piece] &= ~bit;
+        teamBitboards[piece / 6] &= ~bit;
+        occupied &= ~bit;
+        mailbox[square] = (byte) NO_PIECE;
+        zobristKey ^= Zobrist.piece(piece, square);
+        middlegameScore -= PieceSquareTables.middlegame(piece, square);
+        endgameScore -= PieceSquareTables.endgame(piece, square);
+        phase -= PieceSquareTables.phase(piece);
+        // Only set up boards can have a second king to fall back on
+        if (piece % 6 == KING && kingSquares[piece / 6] == square) {
+            long kings = pieceBitboards[piece];
+            kingSquares[piece / 6] = (kings == 0) ? -1 : Long.numberOfTrailingZeros(kings);
         }
     }
 
@@ -164,12 +543,12 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(squares, that.squares);
+        return Arrays.equals(pieceBitboards, that.pieceBitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return (int) (zobristKey ^ (zobristKey >>> 32));
     }
 
     @Override
@@ -178,7 +557,8 @@ public class ChessBoard {
         for (int i = 7; i > -1; i--) {
             sb.append("|");
             for (int j = 0; j < 8; j++) {
-                sb.append(pieceString(squares[i][j]));
+                int piece = mailbox[i * 8 + j];
+                sb.append(pieceString(piece == NO_PIECE ? null : ChessPiece.of(piece)));
                 sb.append("|");
             }
             sb.append("\n");
@@ -1,10 +1,12 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
-import static chess.ChessPiece.PieceType.ROOK;
-import static java.lang.Math.abs;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -12,12 +14,23 @@ import static java.lang.Math.abs;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGameJsonAdapter.class)
 public class ChessGame {
 
+    // Castling right bits, see getCastlingRights
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+
     private ChessBoard gameBoard;
     private TeamColor turnTeam;
 
     private boolean gameOver;
+    // Worked out once per move by makeMove, or null when the position was changed some other way
+    private GameStatus status = null;
+    // The team that resigned, or null if nobody did or resign() was not told which
+    private TeamColor resignedTeam = null;
 
     // Variables for special moves
     private Boolean blackKingMoved = false;
@@ -28,6 +41,32 @@ public class ChessGame {
     private Boolean whiteRightRookMoved = false;
     private ChessPosition pawnMovedTwo = null;
 
+    // Plies since the last capture or pawn move, and the number of the move being played, starting at 1
+    private int halfmoveClock = 0;
+    private int fullmoveNumber = 1;
+
+    // Scratch buffer for move generation so makeMove does not allocate a move list
+    private final transient int[] moveBuffer = new int[PackedMove.MAX_MOVES];
+
+    // Undo stack for doMove: each move and the state it destroyed (special move flags, the captured piece and the
+    // halfmove clock). ChessGameJsonAdapter and ChessGameCodec store it, so it is left out of Gson's fields.
+    private static final int PAWN_MOVED_TWO_SHIFT = 6;
+    private static final int CAPTURED_SHIFT = 13;
+    static final int HALFMOVE_SHIFT = 17;
+    private transient int[] undoMoves = new int[64];
+    private transient long[] undoStates = new long[64];
+    private transient int undoDepth = 0;
+    // Zobrist key of the position before each move on the undo stack, for spotting repetitions. Only the keys from
+    // ply keyedFrom on are known, a decoded history has its keys worked out when first needed.
+    private transient long[] undoKeys = new long[64];
+    private transient int keyedFrom = 0;
+
+    // Positions every CHECKPOINT_INTERVAL plies into the history, saved by positionAt so deep jumps replay only a few
+    // moves. Those after ply checkpointLimit were taken back since and are stale, -1 means all of them are.
+    private static final int CHECKPOINT_INTERVAL = 32;
+    private transient Checkpoint[] checkpoints;
+    private transient int checkpointLimit = -1;
+
     public ChessGame() {
         gameBoard = new ChessBoard();
         gameBoard.resetBoard();
@@ -49,6 +88,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         turnTeam = team;
+        status = null;
     }
 
     /**
@@ -62,80 +102,184 @@ public class ChessGame {
         if (startPosition == null || gameBoard.getPiece(startPosition) == null) {
             return null;
         }
-        Collection<ChessMove> potentialMoves = gameBoard.getPiece(startPosition).pieceMoves(gameBoard, startPosition);
-        Collection<ChessMove> validMoves = new ArrayList<>();
-        TeamColor team = gameBoard.getPiece(startPosition).getTeamColor();
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        int count = validMoves(Bitboards.square(startPosition), moves, 0);
+        Collection<ChessMove> validMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            validMoves.add(PackedMove.toChessMove(moves[i]));
+        }
+        return validMoves;
+    }
 
-        // Add special moves
-        switch (gameBoard.getPiece(startPosition).getPieceType()) {
-            case PAWN:
-                // En Passant move check
-                if (pawnMovedTwo != null) {
-                    if (pawnMovedTwo.getRow() == startPosition.getRow() && abs(
-                            pawnMovedTwo.getColumn() - startPosition.getColumn()) < 2) {
-                        potentialMoves.add(new ChessMove(startPosition, new ChessPosition(
-                                (gameBoard.getPiece(startPosition)
-                                        .getTeamColor() == TeamColor.BLACK ? (pawnMovedTwo.getRow() - 1) :
-                                        (pawnMovedTwo.getRow() + 1)),
-                                pawnMovedTwo.getColumn()), null));
-                    }
-                }
-                break;
-            case KING:
-                // Castling move check
-                if (isInCheck(team)) {
-                    break;
-                }
-                if (gameBoard.getPiece(startPosition).getTeamColor() == TeamColor.WHITE) {
-                    if (!whiteLeftRookMoved && !whiteKingMoved && (gameBoard.getPiece(
-                            new ChessPosition(1, 2)) == null) && (gameBoard.getPiece(
-                            new ChessPosition(1, 3)) == null) && (gameBoard.getPiece(new ChessPosition(1,
-                            4)) == null) && 1 == startPosition.getRow() && 5 == startPosition.getColumn() && gameBoard.getPiece(
-                            new ChessPosition(1, 1)).getPieceType() == ROOK && !isInDanger(team,
-                            new ChessPosition(1, 4))) {
-                        potentialMoves.add(new ChessMove(startPosition, new ChessPosition(1, 3), null));
-                    }
-                    if (!whiteRightRookMoved && !whiteKingMoved && gameBoard.getPiece(
-                            new ChessPosition(1, 6)) == null && gameBoard.getPiece(new ChessPosition(1,
-                            7)) == null && 1 == startPosition.getRow() && 5 == startPosition.getColumn() && gameBoard.getPiece(
-                            new ChessPosition(1, 8)).getPieceType() == ROOK && !isInDanger(team,
-                            new ChessPosition(1, 6))) {
-                        potentialMoves.add(new ChessMove(startPosition, new ChessPosition(1, 7), null));
-                    }
-                } else {
-                    if (!blackLeftRookMoved && !blackKingMoved && (gameBoard.getPiece(
-                            new ChessPosition(8, 2)) == null) && (gameBoard.getPiece(
-                            new ChessPosition(8, 3)) == null) && (gameBoard.getPiece(new ChessPosition(8,
-                            4)) == null) && 8 == startPosition.getRow() && 5 == startPosition.getColumn() && gameBoard.getPiece(
-                            new ChessPosition(8, 1)).getPieceType() == ROOK && !isInDanger(team,
-                            new ChessPosition(8, 4))) {
-                        potentialMoves.add(new ChessMove(startPosition, new ChessPosition(8, 3), null));
-                    }
-                    if (!blackRightRookMoved && !blackKingMoved && gameBoard.getPiece(
-                            new ChessPosition(8, 6)) == null && gameBoard.getPiece(new ChessPosition(8,
-                            7)) == null && 8 == startPosition.getRow() && 5 == startPosition.getColumn() && gameBoard.getPiece(
-                            new ChessPosition(8, 8)).getPieceType() == ROOK && !isInDanger(team,
-                            new ChessPosition(8, 6))) {
-                        potentialMoves.add(new ChessMove(startPosition, new ChessPosition(8, 7), null));
-                    }
-                }
-                break;
+    /**
+     * Writes the valid moves for the piece on a square into a move buffer
+     *
+     * @param square the square of the piece to get valid moves for
+     * @param moves  buffer to write packed moves to
+     * @param count  number of moves already in the buffer
+     * @return the number of moves in the buffer afterwards
+     */
+    public int validMoves(int square, int[] moves, int count) {
+        int piece = gameBoard.pieceAt(square);
+        if (piece == Bitboards.NO_PIECE) {
+            return count;
         }
+        TeamColor team = Bitboards.colorOf(piece);
+        return MovesCalculator.generateLegalMoves(gameBoard, team, getCastlingRights(), enPassantSquare(team),
+                Bitboards.bit(square), moves, count);
+    }
 
-        // Test if each potential move is valid
-        for (ChessMove move : potentialMoves) {
-            ChessPiece capturedPiece = gameBoard.doMove(move);
+    /**
+     * Writes every valid move of the team whose turn it is into a move buffer
+     *
+     * @param moves buffer to write packed moves to, at least {@link PackedMove#MAX_MOVES} long
+     * @return the number of moves written
+     */
+    public int validMoves(int[] moves) {
+        return MovesCalculator.generateLegalMoves(gameBoard, turnTeam, getCastlingRights(), enPassantSquare(turnTeam),
+                -1L, moves, 0);
+    }
 
-            // If move puts king in check it is not valid
-            if (!isInCheck(team)) {
-                validMoves.add(move);
-            }
+    /**
+     * Writes the valid moves of the team whose turn it is that capture a piece, including En Passant
+     *
+     * @param moves buffer to write packed moves to, at least {@link PackedMove#MAX_MOVES} long
+     * @param count number of moves already in the buffer
+     * @return the number of moves in the buffer afterwards
+     */
+    public int validCaptures(int[] moves, int count) {
+        return MovesCalculator.generateLegalMoves(gameBoard, turnTeam, getCastlingRights(), enPassantSquare(turnTeam),
+                -1L, gameBoard.getTeamBitboard(opponent(turnTeam)), moves, count);
+    }
+
+    /**
+     * Writes the valid moves of the team whose turn it is that capture nothing, so together with
+     * {@link #validCaptures} they make up {@link #validMoves(int[])}
+     *
+     * @param moves buffer to write packed moves to, at least {@link PackedMove#MAX_MOVES} long
+     * @param count number of moves already in the buffer
+     * @return the number of moves in the buffer afterwards
+     */
+    public int validQuietMoves(int[] moves, int count) {
+        return MovesCalculator.generateLegalMoves(gameBoard, turnTeam, getCastlingRights(), -1, -1L,
+                ~gameBoard.getOccupied(), moves, count);
+    }
 
-            // Undo move after check
-            gameBoard.undoMove(move, capturedPiece);
+    /**
+     * @return the castling rights still available, as a combination of the WHITE_KING_SIDE, WHITE_QUEEN_SIDE,
+     * BLACK_KING_SIDE and BLACK_QUEEN_SIDE bits
+     */
+    public int getCastlingRights() {
+        int rights = 0;
+        if (!whiteKingMoved && !whiteRightRookMoved) {
+            rights |= WHITE_KING_SIDE;
+        }
+        if (!whiteKingMoved && !whiteLeftRookMoved) {
+            rights |= WHITE_QUEEN_SIDE;
+        }
+        if (!blackKingMoved && !blackRightRookMoved) {
+            rights |= BLACK_KING_SIDE;
         }
+        if (!blackKingMoved && !blackLeftRookMoved) {
+            rights |= BLACK_QUEEN_SIDE;
+        }
+        return rights;
+    }
 
-        return validMoves;
+    /**
+     * Gets the Zobrist key of the current position, covering the pieces, whose turn it is, the castling rights and
+     * the En Passant file. The piece part is kept up to date by the board as moves are made, so this is O(1).
+     *
+     * @return a 64-bit key that is equal for equal positions
+     */
+    public long getZobristKey() {
+        long key = gameBoard.getZobristKey() ^ Zobrist.castling(getCastlingRights());
+        if (turnTeam == TeamColor.BLACK) {
+            key ^= Zobrist.blackToMove();
+        }
+        // Only hash the En Passant file when a pawn can actually take it, so otherwise equal positions match
+        int target = enPassantSquare(turnTeam);
+        if (target >= 0 && (AttackTables.pawnAttacks(opponent(turnTeam), target)
+                & gameBoard.getBitboard(turnTeam, ChessPiece.PieceType.PAWN)) != 0) {
+            key ^= Zobrist.enPassant(Bitboards.column(target));
+        }
+        return key;
+    }
+
+    /**
+     * Sets which castling rights are still available, as if the kings had not moved and only the rooks whose right
+     * is missing had
+     *
+     * @param rights a combination of the WHITE_KING_SIDE, WHITE_QUEEN_SIDE, BLACK_KING_SIDE and BLACK_QUEEN_SIDE bits
+     */
+    public void setCastlingRights(int rights) {
+        whiteKingMoved = false;
+        blackKingMoved = false;
+        whiteRightRookMoved = (rights & WHITE_KING_SIDE) == 0;
+        whiteLeftRookMoved = (rights & WHITE_QUEEN_SIDE) == 0;
+        blackRightRookMoved = (rights & BLACK_KING_SIDE) == 0;
+        blackLeftRookMoved = (rights & BLACK_QUEEN_SIDE) == 0;
+        status = null;
+    }
+
+    /**
+     * @return the pawn that moved two squares last turn and may be captured En Passant, or null
+     */
+    public ChessPosition getPawnMovedTwo() {
+        return pawnMovedTwo;
+    }
+
+    /**
+     * Sets the pawn that just moved two squares, which the other team may capture En Passant this turn
+     *
+     * @param pawn the pawn's position, or null if there is none
+     */
+    public void setPawnMovedTwo(ChessPosition pawn) {
+        pawnMovedTwo = pawn;
+        status = null;
+    }
+
+    /**
+     * @return the number of plies since the last capture or pawn move, as counted for the fifty move rule
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        if (halfmoveClock < 0) {
+            throw new IllegalArgumentException("Halfmove clock cannot be negative: " + halfmoveClock);
+        }
+        this.halfmoveClock = halfmoveClock;
+        status = null;
+    }
+
+    /**
+     * @return the number of the move being played, starting at 1 and going up after each BLACK move
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        if (fullmoveNumber < 1) {
+            throw new IllegalArgumentException("Fullmove number must be at least 1: " + fullmoveNumber);
+        }
+        this.fullmoveNumber = fullmoveNumber;
+        status = null;
+    }
+
+    // Square the team's pawns could capture onto by En Passant, or -1 if the last move was not an enemy double push
+    private int enPassantSquare(TeamColor team) {
+        if (pawnMovedTwo == null) {
+            return -1;
+        }
+        int pawnSquare = Bitboards.square(pawnMovedTwo);
+        if (gameBoard.pieceAt(pawnSquare) == Bitboards.NO_PIECE
+                || Bitboards.colorOf(gameBoard.pieceAt(pawnSquare)) == team) {
+            return -1;
+        }
+        return pawnSquare + ((team == TeamColor.WHITE) ? 8 : -8);
     }
 
     /**
@@ -149,17 +293,101 @@ public class ChessGame {
         if (piece == null || piece.getTeamColor() != turnTeam) {
             throw new InvalidMoveException();
         }
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-        if (validMoves == null || !validMoves.contains(move)) {
-            throw new InvalidMoveException();
+        int requested = PackedMove.fromChessMove(move);
+        int count = validMoves(PackedMove.from(requested), moveBuffer, 0);
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.sameMove(moveBuffer[i], requested)) {
+                makeMove(moveBuffer[i]);
+                return;
+            }
+        }
+        throw new InvalidMoveException();
+    }
+
+    // Plays a packed move that is already known to be valid
+    private void makeMove(int move) {
+        doMove(move);
+        if (!gameOver) {
+            status = computeStatus();
+        }
+    }
+
+    /**
+     * Plays a packed move without checking that it is valid, remembering enough to take it back with
+     * {@link #undoMove()}. Meant for search and perft, which only ever play moves from validMoves.
+     *
+     * @param move a packed move from one of the validMoves methods
+     */
+    public void doMove(int move) {
+        if (undoDepth == undoMoves.length) {
+            undoMoves = Arrays.copyOf(undoMoves, undoDepth * 2);
+            undoStates = Arrays.copyOf(undoStates, undoDepth * 2);
+            undoKeys = Arrays.copyOf(undoKeys, undoDepth * 2);
         }
+        undoKeys[undoDepth] = getZobristKey();
+        long state = specialMoveState() | ((long) halfmoveClock << HALFMOVE_SHIFT);
+
         // This needs to be set every move so En Passant is only valid the turn after
         pawnMovedTwo = null;
 
         checkMove(move);
 
-        gameBoard.doMove(move);
-        turnTeam = (turnTeam == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        boolean pawnMove = Bitboards.typeOf(gameBoard.pieceAt(PackedMove.from(move))) == ChessPiece.PieceType.PAWN;
+        int capturedPiece = gameBoard.doMove(move);
+        undoMoves[undoDepth] = move;
+        undoStates[undoDepth++] = state | ((long) (capturedPiece + 1) << CAPTURED_SHIFT);
+        halfmoveClock = (pawnMove || capturedPiece != Bitboards.NO_PIECE) ? 0 : halfmoveClock + 1;
+        if (turnTeam == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        turnTeam = opponent(turnTeam);
+        status = null;
+    }
+
+    /**
+     * Takes back the last move played with {@link #doMove(int)} or makeMove
+     */
+    public void undoMove() {
+        if (undoDepth == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        int move = undoMoves[--undoDepth];
+        long state = undoStates[undoDepth];
+        turnTeam = opponent(turnTeam);
+        if (turnTeam == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+        gameBoard.undoMove(move, (int) ((state >>> CAPTURED_SHIFT) & 0xF) - 1);
+        restoreSpecialMoveState(state);
+        halfmoveClock = (int) (state >>> HALFMOVE_SHIFT);
+        status = null;
+        if (undoDepth < checkpointLimit) {
+            checkpointLimit = undoDepth;
+        }
+        if (undoDepth < keyedFrom) {
+            keyedFrom = undoDepth;
+        }
+    }
+
+    // Packs the castling flags and the pawn that moved two into the low bits of an undo state
+    long specialMoveState() {
+        long state = (whiteKingMoved ? 1 : 0) | (whiteLeftRookMoved ? 2 : 0) | (whiteRightRookMoved ? 4 : 0)
+                | (blackKingMoved ? 8 : 0) | (blackLeftRookMoved ? 16 : 0) | (blackRightRookMoved ? 32 : 0);
+        if (pawnMovedTwo != null) {
+            state |= (long) (Bitboards.square(pawnMovedTwo) + 1) << PAWN_MOVED_TWO_SHIFT;
+        }
+        return state;
+    }
+
+    void restoreSpecialMoveState(long state) {
+        whiteKingMoved = (state & 1) != 0;
+        whiteLeftRookMoved = (state & 2) != 0;
+        whiteRightRookMoved = (state & 4) != 0;
+        blackKingMoved = (state & 8) != 0;
+        blackLeftRookMoved = (state & 16) != 0;
+        blackRightRookMoved = (state & 32) != 0;
+        int pawnSquare = (int) ((state >>> PAWN_MOVED_TWO_SHIFT) & 0x7F) - 1;
+        pawnMovedTwo = (pawnSquare < 0) ? null : Bitboards.position(pawnSquare);
     }
 
     /**
@@ -169,26 +397,13 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        Collection<ChessPosition> enemyPositions = gameBoard.getPieces(
-                (teamColor == TeamColor.BLACK) ? TeamColor.WHITE : TeamColor.BLACK);
-        for (ChessPosition position : enemyPositions) {
-            if (gameBoard.getPiece(position).canKillKing(gameBoard, position)) {
-                return true;
-            }
-        }
-        return false;
+        int king = gameBoard.getKingSquare(teamColor);
+        return king >= 0 && gameBoard.isSquareAttacked(king, opponent(teamColor));
     }
 
     // Check if the piece of teamColor in position piecePosition is in danger (used for castling)
     public boolean isInDanger(TeamColor teamColor, ChessPosition piecePosition) {
-        Collection<ChessPosition> enemyPositions = gameBoard.getPieces(
-                (teamColor == TeamColor.BLACK) ? TeamColor.WHITE : TeamColor.BLACK);
-        for (ChessPosition position : enemyPositions) {
-            if (gameBoard.getPiece(position).canKillPiece(gameBoard, position, piecePosition)) {
-                return true;
-            }
-        }
-        return false;
+        return gameBoard.isSquareAttacked(piecePosition, opponent(teamColor));
     }
 
     /**
@@ -198,23 +413,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
-        }
-        Collection<ChessPosition> team = gameBoard.getPieces(teamColor);
-        for (ChessPosition position : team) {
-            Collection<ChessMove> moves = validMoves(position);
-            for (ChessMove move : moves) {
-                ChessPiece capturedPiece = gameBoard.doMove(move);
-                if (!isInCheck(teamColor)) {
-                    gameBoard.undoMove(move, capturedPiece);
-                    return false;
-                } else {
-                    gameBoard.undoMove(move, capturedPiece);
-                }
-            }
-        }
-        return true;
+        return isInCheck(teamColor) && !hasValidMove(teamColor);
     }
 
     /**
@@ -225,17 +424,289 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            return false;
+        return !isInCheck(teamColor) && !hasValidMove(teamColor);
+    }
+
+    private boolean hasValidMove(TeamColor teamColor) {
+        return MovesCalculator.generateLegalMoves(gameBoard, teamColor, getCastlingRights(),
+                enPassantSquare(teamColor), -1L, moveBuffer, 0) > 0;
+    }
+
+    /**
+     * @return the number of moves played with makeMove or doMove that can be taken back with undoMove
+     */
+    public int historySize() {
+        return undoDepth;
+    }
+
+    /**
+     * @param ply index of the move in the history, 0 for the first
+     * @return the packed move
+     */
+    public int historyMove(int ply) {
+        return undoMoves[ply];
+    }
+
+    long historyState(int ply) {
+        return undoStates[ply];
+    }
+
+    /**
+     * @return the moves played with makeMove or doMove, oldest first
+     */
+    public List<ChessMove> getMoveHistory() {
+        List<ChessMove> history = new ArrayList<>(undoDepth);
+        for (int ply = 0; ply < undoDepth; ply++) {
+            history.add(PackedMove.toChessMove(undoMoves[ply]));
+        }
+        return history;
+    }
+
+    /**
+     * Rebuilds the position after the first moves of the history, leaving this game as it is. The position is
+     * replayed from the nearest checkpoint or taken back from the current position, whichever is fewer moves, and
+     * the checkpoints passed on the way are saved for next time.
+     *
+     * @param ply number of moves into the history, from 0 for the starting position to historySize()
+     * @return a new game in that position, with those moves as its history
+     */
+    public ChessGame positionAt(int ply) {
+        if (ply < 0 || ply > undoDepth) {
+            throw new IllegalArgumentException("Ply " + ply + " is not in a history of " + undoDepth + " moves");
+        }
+        dropStaleCheckpoints();
+        int slot = ply / CHECKPOINT_INTERVAL;
+        while (slot >= 0 && checkpoints[slot] == null) {
+            slot--;
+        }
+        ChessGame game;
+        if (slot >= 0 && ply - slot * CHECKPOINT_INTERVAL <= undoDepth - ply) {
+            game = checkpoints[slot].restore();
+            game.copyHistory(this, slot * CHECKPOINT_INTERVAL);
+            while (game.undoDepth < ply) {
+                game.doMove(undoMoves[game.undoDepth]);
+                saveCheckpoint(game);
+            }
+        } else {
+            game = new Checkpoint(this).restore();
+            game.copyHistory(this, undoDepth);
+            while (game.undoDepth > ply) {
+                game.undoMove();
+                saveCheckpoint(game);
+            }
+        }
+        game.copyHistory(this, ply);
+        return game;
+    }
+
+    // Forgets checkpoints for positions that have been taken back, then makes room for one per interval of history
+    private void dropStaleCheckpoints() {
+        int slots = undoDepth / CHECKPOINT_INTERVAL + 1;
+        if (checkpoints == null) {
+            checkpoints = new Checkpoint[slots];
+        }
+        for (int slot = 0; slot < checkpoints.length; slot++) {
+            if (slot * CHECKPOINT_INTERVAL > checkpointLimit) {
+                checkpoints[slot] = null;
+            }
+        }
+        if (checkpoints.length < slots) {
+            checkpoints = Arrays.copyOf(checkpoints, slots);
+        }
+        checkpointLimit = undoDepth;
+    }
+
+    private void saveCheckpoint(ChessGame game) {
+        if (game.undoDepth % CHECKPOINT_INTERVAL == 0) {
+            checkpoints[game.undoDepth / CHECKPOINT_INTERVAL] = new Checkpoint(game);
+        }
+    }
+
+    /**
+     * Everything needed to set up a position again: the pieces, whose turn it is, the castling flags, the pawn that
+     * moved two and the clocks
+     */
+    private record Checkpoint(byte[] mailbox, TeamColor turn, long state, int fullmoveNumber) {
+
+        Checkpoint(ChessGame game) {
+            this(mailbox(game.gameBoard), game.turnTeam,
+                    game.specialMoveState() | ((long) game.halfmoveClock << HALFMOVE_SHIFT), game.fullmoveNumber);
+        }
+
+        private static byte[] mailbox(ChessBoard board) {
+            byte[] mailbox = new byte[64];
+            for (int square = 0; square < 64; square++) {
+                mailbox[square] = (byte) board.pieceAt(square);
+            }
+            return mailbox;
         }
-        Collection<ChessPosition> team = gameBoard.getPieces(teamColor);
-        for (ChessPosition position : team) {
-            Collection<ChessMove> moves = validMoves(position);
-            if (!moves.isEmpty()) {
-                return false;
+
+        ChessGame restore() {
+            ChessBoard board = new ChessBoard();
+            for (int square = 0; square < 64; square++) {
+                if (mailbox[square] != Bitboards.NO_PIECE) {
+                    board.addPiece(square, mailbox[square]);
+                }
             }
+            ChessGame game = new ChessGame();
+            game.setBoard(board);
+            game.turnTeam = turn;
+            game.restoreSpecialMoveState(state);
+            game.halfmoveClock = (int) (state >>> HALFMOVE_SHIFT);
+            game.fullmoveNumber = fullmoveNumber;
+            return game;
+        }
+    }
+
+    // Replaces the undo stack, used by ChessGameCodec after it has set up the current position
+    void restoreHistory(int[] moves, long[] states, int size) {
+        undoMoves = Arrays.copyOf(moves, Math.max(size, 64));
+        undoStates = Arrays.copyOf(states, Math.max(size, 64));
+        undoKeys = new long[undoMoves.length];
+        undoDepth = size;
+        keyedFrom = size;
+        checkpointLimit = -1;
+    }
+
+    // Replaces the undo stack with the first moves of another game's, keys and all
+    private void copyHistory(ChessGame game, int size) {
+        restoreHistory(game.undoMoves, game.undoStates, size);
+        undoKeys = Arrays.copyOf(game.undoKeys, undoMoves.length);
+        keyedFrom = Math.min(game.keyedFrom, size);
+    }
+
+    /**
+     * Counts how many times the current position has been seen before with the same side to move, castling rights
+     * and En Passant capture. Only the moves since the last capture or pawn move are looked at, as no position
+     * before an irreversible move can come back.
+     *
+     * @return the number of earlier occurrences, so 2 means the position has now been repeated three times
+     */
+    public int repetitionCount() {
+        int earliest = Math.max(undoDepth - halfmoveClock, 0);
+        if (earliest < keyedFrom) {
+            findKeys(earliest);
+        }
+        long key = getZobristKey();
+        int count = 0;
+        for (int ply = undoDepth - 2; ply >= earliest; ply -= 2) {
+            if (undoKeys[ply] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Takes moves back to the given ply and plays them again to record the keys of the positions on the way
+    private void findKeys(int earliest) {
+        long state = specialMoveState();
+        int halfmove = halfmoveClock;
+        int fullmove = fullmoveNumber;
+        int limit = checkpointLimit;
+        GameStatus known = status;
+        int depth = undoDepth;
+        while (undoDepth > earliest) {
+            undoMove();
+        }
+        while (undoDepth < depth) {
+            doMove(undoMoves[undoDepth]);
+        }
+        restoreSpecialMoveState(state);
+        halfmoveClock = halfmove;
+        fullmoveNumber = fullmove;
+        checkpointLimit = limit;
+        status = known;
+        keyedFrom = earliest;
+    }
+
+    /**
+     * @return true if the current position has occurred three times
+     */
+    public boolean isThreefoldRepetition() {
+        return repetitionCount() >= 2;
+    }
+
+    /**
+     * @return true if fifty moves by each side have been played without a capture or pawn move
+     */
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * Determines if neither side has the pieces left to checkmate: kings alone, a king and one bishop or knight
+     * against a king, or only bishops that all stand on squares of one color
+     *
+     * @return true if no sequence of moves can end in checkmate
+     */
+    public boolean hasInsufficientMaterial() {
+        long pieces = gameBoard.getOccupied();
+        long bishops = 0;
+        long knights = 0;
+        for (TeamColor color : TeamColor.values()) {
+            pieces &= ~gameBoard.getBitboard(color, ChessPiece.PieceType.KING);
+            bishops |= gameBoard.getBitboard(color, ChessPiece.PieceType.BISHOP);
+            knights |= gameBoard.getBitboard(color, ChessPiece.PieceType.KNIGHT);
+        }
+        if (pieces != (bishops | knights)) {
+            return false;
+        }
+        if (Long.bitCount(pieces) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & Bitboards.LIGHT_SQUARES) == 0 || (bishops & ~Bitboards.LIGHT_SQUARES) == 0);
+    }
+
+    /**
+     * @return true if the game is drawn by threefold repetition, the fifty move rule or insufficient material
+     */
+    public boolean isDraw() {
+        return isFiftyMoveRule() || hasInsufficientMaterial() || isThreefoldRepetition();
+    }
+
+    boolean isGameOverSet() {
+        return gameOver;
+    }
+
+    // The stored status without working it out, null if it is not known
+    GameStatus storedStatus() {
+        return status;
+    }
+
+    void restoreStatus(GameStatus status) {
+        this.status = status;
+    }
+
+    void restoreResignedTeam(TeamColor team) {
+        resignedTeam = team;
+    }
+
+    /**
+     * Gets the status of the game for the team whose turn it is. makeMove works this out once per move, so this
+     * is O(1) unless the position was set up or changed some other way since.
+     *
+     * @return the game status
+     */
+    public GameStatus getGameStatus() {
+        if (status == null) {
+            status = computeStatus();
+        }
+        return status;
+    }
+
+    private GameStatus computeStatus() {
+        boolean inCheck = isInCheck(turnTeam);
+        if (!hasValidMove(turnTeam)) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (isDraw()) {
+            return GameStatus.DRAW;
         }
-        return true;
+        return inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+    }
+
+    private static TeamColor opponent(TeamColor teamColor) {
+        return (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
     /**
@@ -261,64 +732,111 @@ public class ChessGame {
         blackRightRookMoved = false;
         whiteRightRookMoved = false;
         pawnMovedTwo = null;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        undoDepth = 0;
+        keyedFrom = 0;
+        checkpointLimit = -1;
+        status = null;
     }
 
     // Used to set special moves variables (mainly to keep track of if kings and rooks have moved, as well as keep
     // track of the pawn that just moved two)
-    private void checkMove(ChessMove move) {
-        ChessPiece piece = gameBoard.getPiece(move.getStartPosition());
-        switch (piece.getPieceType()) {
+    private void checkMove(int move) {
+        int from = PackedMove.from(move);
+        int piece = gameBoard.pieceAt(from);
+        TeamColor color = Bitboards.colorOf(piece);
+        switch (Bitboards.typeOf(piece)) {
             case PAWN:
-                if (abs(move.getStartPosition().getRow() - move.getEndPosition().getRow()) == 2) {
-                    pawnMovedTwo = move.getEndPosition();
+                if (PackedMove.flag(move) == PackedMove.DOUBLE_PUSH) {
+                    pawnMovedTwo = Bitboards.position(PackedMove.to(move));
                 }
                 break;
             case ROOK:
-                if (piece.getTeamColor() == TeamColor.BLACK && move.getStartPosition().getRow() == 8) {
-                    if (move.getStartPosition().getColumn() == 1) {
+                if (color == TeamColor.BLACK && Bitboards.row(from) == 8) {
+                    if (Bitboards.column(from) == 1) {
                         blackLeftRookMoved = true;
-                    } else if (move.getStartPosition().getColumn() == 8) {
+                    } else if (Bitboards.column(from) == 8) {
                         blackRightRookMoved = true;
                     }
-                } else if (piece.getTeamColor() == TeamColor.WHITE && move.getStartPosition().getRow() == 1) {
-                    if (move.getStartPosition().getColumn() == 1) {
+                } else if (color == TeamColor.WHITE && Bitboards.row(from) == 1) {
+                    if (Bitboards.column(from) == 1) {
                         whiteLeftRookMoved = true;
-                    } else if (move.getStartPosition().getColumn() == 8) {
+                    } else if (Bitboards.column(from) == 8) {
                         whiteRightRookMoved = true;
                     }
                 }
                 break;
             case KING:
-                if (piece.getTeamColor() == TeamColor.BLACK && move.getStartPosition()
-                        .getRow() == 8 && move.getStartPosition().getColumn() == 5) {
+                if (color == TeamColor.BLACK && from == Bitboards.square(8, 5)) {
                     blackKingMoved = true;
-                } else if (piece.getTeamColor() == TeamColor.WHITE && move.getStartPosition()
-                        .getRow() == 1 && move.getStartPosition().getColumn() == 5) {
+                } else if (color == TeamColor.WHITE && from == Bitboards.square(1, 5)) {
                     whiteKingMoved = true;
                 }
                 break;
             default:
                 break;
         }
+
+        // A rook captured on its starting square can no longer be castled with either
+        int to = PackedMove.to(move);
+        if (to == Bitboards.square(1, 1)) {
+            whiteLeftRookMoved = true;
+        } else if (to == Bitboards.square(1, 8)) {
+            whiteRightRookMoved = true;
+        } else if (to == Bitboards.square(8, 1)) {
+            blackLeftRookMoved = true;
+        } else if (to == Bitboards.square(8, 8)) {
+            blackRightRookMoved = true;
+        }
     }
 
     public Boolean isOver() {
-        if (isInStalemate(TeamColor.BLACK) || isInStalemate(TeamColor.WHITE)
-            || (isInCheckmate(TeamColor.BLACK) && turnTeam.equals(TeamColor.BLACK))
-            || (isInCheckmate(TeamColor.WHITE) && turnTeam.equals(TeamColor.WHITE))) {
-            gameOver = true;
-        }
-        return gameOver;
+        return gameOver || getGameStatus().isOver();
     }
 
     public void setGameOver(boolean gameOver) {
         this.gameOver = gameOver;
     }
 
+    /**
+     * Ends the game because one of the players resigned
+     */
+    public void resign() {
+        gameOver = true;
+        status = GameStatus.RESIGNED;
+    }
+
+    /**
+     * Ends the game because the given team resigned, so the other team wins
+     */
+    public void resign(TeamColor team) {
+        resign();
+        resignedTeam = team;
+    }
+
+    /**
+     * @return the team that resigned, or null if the game was not resigned or resigned without saying by whom
+     */
+    public TeamColor getResignedTeam() {
+        return resignedTeam;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
     public enum TeamColor {
         WHITE, BLACK
     }
+
+    /**
+     * The state of a game, from the point of view of the team whose turn it is
+     */
+    public enum GameStatus {
+        ONGOING, CHECK, CHECKMATE, STALEMATE, RESIGNED, DRAW;
+
+        public boolean isOver() {
+            return this == CHECKMATE || this == STALEMATE || this == RESIGNED || this == DRAW;
+        }
+    }
 }
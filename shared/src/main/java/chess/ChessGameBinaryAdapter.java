@@ -0,0 +1,38 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes a {@link ChessGame} as a base64 string of its {@link ChessGameCodec} encoding instead of a JSON object.
+ * Reading accepts either form, so a Gson with this adapter registered understands games from old and new senders.
+ * <pre>
+ * Gson gson = new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameBinaryAdapter()).create();
+ * </pre>
+ */
+public class ChessGameBinaryAdapter extends TypeAdapter<ChessGame> {
+
+    private static final TypeAdapter<ChessGame> JSON = new Gson().getAdapter(ChessGame.class);
+
+    @Override
+    public void write(JsonWriter out, ChessGame game) throws IOException {
+        if (game == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(ChessGameCodec.encodeBase64(game));
+    }
+
+    @Override
+    public ChessGame read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return ChessGameCodec.decodeBase64(in.nextString());
+        }
+        return JSON.read(in);
+    }
+}
@@ -0,0 +1,241 @@
+package chess;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Compact binary encoding of a ChessGame, an alternative to Gson's JSON for storing games and sending them to
+ * clients. Decoding an encoded game gives back a game with the same position, turn, castling rights, En Passant
+ * pawn, clocks, status and move history, so it can carry on or take moves back exactly as the original could.
+ * <p>
+ * Version 2 layout (multi-byte values big-endian):
+ * <pre>
+ * byte     version
+ * byte     bit 0 black to move, bit 1 game over, bits 2-4 status (0 unknown, else ordinal + 1), bit 5 clocks
+ *          follow the history, bit 6 history entries are 6 bytes, bit 7 history entries are varints
+ * byte     castling flags, the king and rook moved bits, then in bits 6-7 the team that resigned (0 none or not
+ *          known, 1 WHITE, 2 BLACK)
+ * byte     square of the pawn that moved two + 1, or 0
+ * long     occupied squares
+ * nibbles  piece index of each occupied square in square order, two per byte, padded to a whole byte
+ * varint   number of moves in the history
+ * 5 bytes  per move, oldest first: the packed move in the low 17 bits and its undo state above; 6 bytes if a
+ *          halfmove clock in the history reached 64, or the packed move and the undo state as two varints if one
+ *          reached 16384
+ * varint   halfmove clock and then fullmove number, only if they are not 0 and 1
+ * </pre>
+ * A position with the usual 32 or fewer pieces takes at most 28 bytes, plus 5 bytes per move of history. Version 1,
+ * the same without clocks, is still read.
+ */
+public final class ChessGameCodec {
+
+    public static final byte VERSION = 2;
+
+    private static final int MOVE_BITS = 17;
+    private static final int CLOCKS_FLAG = 1 << 5;
+    private static final int WIDE_HISTORY_FLAG = 1 << 6;
+    private static final int VARINT_HISTORY_FLAG = 1 << 7;
+    // Undo states below these sizes fit a 5 and a 6 byte history entry
+    private static final long NARROW_STATE_LIMIT = 1L << (40 - MOVE_BITS);
+    private static final long WIDE_STATE_LIMIT = 1L << (48 - MOVE_BITS);
+    private static final ChessGame.GameStatus[] STATUSES = ChessGame.GameStatus.values();
+
+    private ChessGameCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupied();
+        int history = game.historySize();
+        long largestState = 0L;
+        for (int ply = 0; ply < history; ply++) {
+            largestState = Math.max(largestState, game.historyState(ply));
+        }
+        boolean wide = largestState >= NARROW_STATE_LIMIT;
+        boolean varint = largestState >= WIDE_STATE_LIMIT;
+        boolean clocks = game.getHalfmoveClock() != 0 || game.getFullmoveNumber() != 1;
+        // A varint entry is at most 3 bytes of move and 10 of state
+        ByteBuffer buffer = ByteBuffer.allocate(12 + Long.bitCount(occupied) / 2 + 1 + 5
+                + history * (varint ? 13 : wide ? 6 : 5) + 10);
+
+        buffer.put(VERSION);
+        ChessGame.GameStatus status = game.storedStatus();
+        int flags = (game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0) | (game.isGameOverSet() ? 2 : 0)
+                | ((status == null ? 0 : status.ordinal() + 1) << 2) | (clocks ? CLOCKS_FLAG : 0)
+                | (wide ? WIDE_HISTORY_FLAG : 0) | (varint ? VARINT_HISTORY_FLAG : 0);
+        buffer.put((byte) flags);
+        long specialMoves = game.specialMoveState();
+        ChessGame.TeamColor resigned = game.getResignedTeam();
+        buffer.put((byte) ((specialMoves & 0x3F) | ((resigned == null ? 0 : resigned.ordinal() + 1) << 6)));
+        buffer.put((byte) (specialMoves >>> 6));
+
+        buffer.putLong(occupied);
+        int pending = -1;
+        for (long bits = occupied; bits != 0; bits &= bits - 1) {
+            int piece = board.pieceAt(Long.numberOfTrailingZeros(bits));
+            if (pending < 0) {
+                pending = piece << 4;
+            } else {
+                buffer.put((byte) (pending | piece));
+                pending = -1;
+            }
+        }
+        if (pending >= 0) {
+            buffer.put((byte) pending);
+        }
+
+        putVarInt(buffer, history);
+        for (int ply = 0; ply < history; ply++) {
+            if (varint) {
+                putVarInt(buffer, game.historyMove(ply));
+                putVarLong(buffer, game.historyState(ply));
+                continue;
+            }
+            long entry = game.historyMove(ply) | (game.historyState(ply) << MOVE_BITS);
+            if (wide) {
+                buffer.put((byte) (entry >>> 40));
+            }
+            buffer.put((byte) (entry >>> 32));
+            buffer.putInt((int) entry);
+        }
+        if (clocks) {
+            putVarInt(buffer, game.getHalfmoveClock());
+            putVarInt(buffer, game.getFullmoveNumber());
+        }
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a game this codec wrote
+     */
+    public static ChessGame decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            byte version = buffer.get();
+            if (version != VERSION && version != 1) {
+                throw new IllegalArgumentException("Unsupported game encoding version " + version);
+            }
+            int flags = buffer.get() & 0xFF;
+            int castlingByte = buffer.get() & 0xFF;
+            int castlingFlags = castlingByte & 0x3F;
+            int resigned = castlingByte >>> 6;
+            if (resigned > 2) {
+                throw new IllegalArgumentException("Bad resigned team in encoded game");
+            }
+            int pawnMovedTwo = buffer.get() & 0x7F;
+            if (pawnMovedTwo > 64) {
+                throw new IllegalArgumentException("Bad En Passant square in encoded game");
+            }
+
+            ChessBoard board = new ChessBoard();
+            long occupied = buffer.getLong();
+            int packed = 0;
+            boolean high = true;
+            for (long bits = occupied; bits != 0; bits &= bits - 1) {
+                if (high) {
+                    packed = buffer.get() & 0xFF;
+                }
+                int piece = high ? packed >>> 4 : packed & 0xF;
+                if (piece >= 12) {
+                    throw new IllegalArgumentException("Bad piece in encoded game");
+                }
+                board.addPiece(Long.numberOfTrailingZeros(bits), piece);
+                high = !high;
+            }
+
+            ChessGame game = new ChessGame();
+            game.setBoard(board);
+            game.setTeamTurn((flags & 1) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+            game.restoreSpecialMoveState(castlingFlags | ((long) pawnMovedTwo << 6));
+            game.setGameOver((flags & 2) != 0);
+
+            boolean wide = (flags & WIDE_HISTORY_FLAG) != 0;
+            boolean varint = (flags & VARINT_HISTORY_FLAG) != 0;
+            int history = getVarInt(buffer);
+            if (history < 0 || history > buffer.remaining() / (varint ? 2 : wide ? 6 : 5)) {
+                throw new IllegalArgumentException("Bad history length in encoded game");
+            }
+            int[] moves = new int[history];
+            long[] states = new long[history];
+            for (int ply = 0; ply < history; ply++) {
+                if (varint) {
+                    moves[ply] = getVarInt(buffer);
+                    states[ply] = getVarLong(buffer);
+                    continue;
+                }
+                long entry = wide ? (buffer.get() & 0xFFL) << 40 : 0L;
+                entry |= ((buffer.get() & 0xFFL) << 32) | (buffer.getInt() & 0xFFFFFFFFL);
+                moves[ply] = (int) (entry & ((1 << MOVE_BITS) - 1));
+                states[ply] = entry >>> MOVE_BITS;
+            }
+            game.restoreHistory(moves, states, history);
+            if ((flags & CLOCKS_FLAG) != 0) {
+                game.setHalfmoveClock(getVarInt(buffer));
+                game.setFullmoveNumber(getVarInt(buffer));
+            }
+            int status = (flags >>> 2) & 0x7;
+            if (status > STATUSES.length) {
+                throw new IllegalArgumentException("Bad status in encoded game");
+            }
+            game.restoreStatus(status == 0 ? null : STATUSES[status - 1]);
+            game.restoreResignedTeam(resigned == 0 ? null : ChessGame.TeamColor.values()[resigned - 1]);
+            return game;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Encoded game is truncated", e);
+        }
+    }
+
+    public static String encodeBase64(ChessGame game) {
+        return Base64.getEncoder().encodeToString(encode(game));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a game this codec wrote
+     */
+    public static ChessGame decodeBase64(String text) {
+        return decode(Base64.getDecoder().decode(text));
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Bad varint in encoded game");
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Bad varint in encoded game");
+    }
+}
@@ -0,0 +1,83 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializes a {@link ChessGame} as the same JSON object as before plus a {@code history} array, so a game stored
+ * or sent as JSON keeps the moves that undoMove, positionAt and the repetition rule need. Each entry is a packed
+ * move and the undo state it recorded, {@code [move, state]}, oldest first. Games written before the history was
+ * stored read back with none.
+ */
+public class ChessGameJsonAdapter implements TypeAdapterFactory {
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != ChessGame.class) {
+            return null;
+        }
+        TypeAdapter<ChessGame> fields = gson.getDelegateAdapter(this, TypeToken.get(ChessGame.class));
+        TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+        @SuppressWarnings("unchecked")
+        TypeAdapter<T> adapter = (TypeAdapter<T>) new HistoryAdapter(fields, elements).nullSafe();
+        return adapter;
+    }
+
+    private static final class HistoryAdapter extends TypeAdapter<ChessGame> {
+
+        private final TypeAdapter<ChessGame> fields;
+        private final TypeAdapter<JsonElement> elements;
+
+        HistoryAdapter(TypeAdapter<ChessGame> fields, TypeAdapter<JsonElement> elements) {
+            this.fields = fields;
+            this.elements = elements;
+        }
+
+        @Override
+        public void write(JsonWriter out, ChessGame game) throws IOException {
+            JsonObject json = fields.toJsonTree(game).getAsJsonObject();
+            JsonArray history = new JsonArray(game.historySize());
+            for (int ply = 0; ply < game.historySize(); ply++) {
+                JsonArray entry = new JsonArray(2);
+                entry.add(game.historyMove(ply));
+                entry.add(game.historyState(ply));
+                history.add(entry);
+            }
+            json.add("history", history);
+            elements.write(out, json);
+        }
+
+        @Override
+        public ChessGame read(JsonReader in) throws IOException {
+            JsonObject json = elements.read(in).getAsJsonObject();
+            JsonElement history = json.remove("history");
+            ChessGame game = fields.fromJsonTree(json);
+            if (history == null || history.isJsonNull()) {
+                return game;
+            }
+            JsonArray entries = history.getAsJsonArray();
+            int[] moves = new int[entries.size()];
+            long[] states = new long[entries.size()];
+            for (int ply = 0; ply < moves.length; ply++) {
+                JsonArray entry = entries.get(ply).getAsJsonArray();
+                if (entry.size() != 2) {
+                    throw new JsonParseException("Bad history entry in game JSON: " + entry);
+                }
+                moves[ply] = entry.get(0).getAsInt();
+                states[ply] = entry.get(1).getAsLong();
+            }
+            game.restoreHistory(moves, states, moves.length);
+            return game;
+        }
+    }
+}
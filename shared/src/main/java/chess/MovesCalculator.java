@@ -1,127 +1,252 @@
-package chess;
-
-import java.util.ArrayList;
-import java.util.Collection;
-
-public class MovesCalculator {
-
-    public static Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition myPosition) {
-        return switch (board.getPiece(myPosition).getPieceType()) {
-            case BISHOP -> bishopMoves(board, myPosition);
-            case ROOK -> rookMoves(board, myPosition);
-            case KING -> kingMoves(board, myPosition);
-            case QUEEN -> queenMoves(board, myPosition);
-            case KNIGHT -> knightMoves(board, myPosition);
-            case PAWN -> pawnMoves(board, myPosition);
-            default -> null;
-        };
-    }
-
-    private static Collection<ChessMove> linearMoves(Boolean iterative, ChessBoard board, ChessPosition myPosition,
-                                                     int[][] directions) {
-        Collection<ChessMove> moves = new ArrayList<>();
-
-        for (int[] direction : directions) {
-            int dy = direction[0];
-            int dx = direction[1];
-            int depth = 1;
-            do {
-                ChessPosition endPosition = new ChessPosition(myPosition.getRow() + dy * depth,
-                        myPosition.getColumn() + dx * depth);
-                if (endPosition.outsideBounds()) {
-                    break;
-                }
-
-                if (board.getPiece(endPosition) == null) {
-                    moves.add(new ChessMove(myPosition, endPosition, null));
-                } else if (board.getPiece(endPosition).getTeamColor() != board.getPiece(myPosition).getTeamColor()) {
-                    moves.add(new ChessMove(myPosition, endPosition, null));
-                    break;
-                } else {
-                    break;
-                }
-
-                depth++;
-            } while (iterative);
-        }
-
-        return moves;
-    }
-
-    private static Collection<ChessMove> bishopMoves(ChessBoard board, ChessPosition myPosition) {
-        int[][] directions = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
-        return linearMoves(true, board, myPosition, directions);
-    }
-
-    private static Collection<ChessMove> rookMoves(ChessBoard board, ChessPosition myPosition) {
-        int[][] directions = {{1, 0}, {-1, 0}, {0, -1}, {0, 1}};
-        return linearMoves(true, board, myPosition, directions);
-    }
-
-    private static Collection<ChessMove> kingMoves(ChessBoard board, ChessPosition myPosition) {
-        int[][] directions = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}, {1, 0}, {-1, 0}, {0, -1}, {0, 1}};
-        Collection<ChessMove> moves = linearMoves(false, board, myPosition, directions);
-        return moves;
-    }
-
-    private static Collection<ChessMove> queenMoves(ChessBoard board, ChessPosition myPosition) {
-        int[][] directions = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}, {1, 0}, {-1, 0}, {0, -1}, {0, 1}};
-        return linearMoves(true, board, myPosition, directions);
-    }
-
-    private static Collection<ChessMove> knightMoves(ChessBoard board, ChessPosition myPosition) {
-        int[][] directions = {{2, 1}, {-2, 1}, {2, -1}, {-2, -1}, {1, -2}, {-1, -2}, {1, 2}, {-1, 2}};
-        return linearMoves(false, board, myPosition, directions);
-    }
-
-    private static Collection<ChessMove> pawnMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
-        int direction = (board.getPiece(myPosition).getTeamColor() == ChessGame.TeamColor.BLACK) ? -1 : 1;
-
-        ChessPosition one = new ChessPosition(myPosition.getRow() + direction, myPosition.getColumn());
-        if (!one.outsideBounds() && board.getPiece(one) == null) {
-            if (one.getRow() == 1 || one.getRow() == 8) {
-                moves.add(new ChessMove(myPosition, one, ChessPiece.PieceType.BISHOP));
-                moves.add(new ChessMove(myPosition, one, ChessPiece.PieceType.ROOK));
-                moves.add(new ChessMove(myPosition, one, ChessPiece.PieceType.KNIGHT));
-                moves.add(new ChessMove(myPosition, one, ChessPiece.PieceType.QUEEN));
-            } else {
-                moves.add(new ChessMove(myPosition, one, null));
-                if ((direction == -1 && myPosition.getRow() == 7) || (direction == 1 && myPosition.getRow() == 2)) {
-                    ChessPosition two = new ChessPosition(myPosition.getRow() + direction * 2, myPosition.getColumn());
-                    if (board.getPiece(two) == null) {
-                        moves.add(new ChessMove(myPosition, two, null));
-                    }
-                }
-            }
-        }
-
-        ChessPosition left = new ChessPosition(myPosition.getRow() + direction, myPosition.getColumn() + 1);
-        if (!left.outsideBounds() && board.getPiece(left) != null && board.getPiece(left)
-                .getTeamColor() != board.getPiece(myPosition).getTeamColor()) {
-            if (left.getRow() == 1 || left.getRow() == 8) {
-                moves.add(new ChessMove(myPosition, left, ChessPiece.PieceType.BISHOP));
-                moves.add(new ChessMove(myPosition, left, ChessPiece.PieceType.ROOK));
-                moves.add(new ChessMove(myPosition, left, ChessPiece.PieceType.KNIGHT));
-                moves.add(new ChessMove(myPosition, left, ChessPiece.PieceType.QUEEN));
-            } else {
-                moves.add(new ChessMove(myPosition, left, null));
-            }
-        }
-
-        ChessPosition right = new ChessPosition(myPosition.getRow() + direction, myPosition.getColumn() - 1);
-        if (!right.outsideBounds() && board.getPiece(right) != null && board.getPiece(right)
-                .getTeamColor() != board.getPiece(myPosition).getTeamColor()) {
-            if (right.getRow() == 1 || right.getRow() == 8) {
-                moves.add(new ChessMove(myPosition, right, ChessPiece.PieceType.BISHOP));
-                moves.add(new ChessMove(myPosition, right, ChessPiece.PieceType.ROOK));
-                moves.add(new ChessMove(myPosition, right, ChessPiece.PieceType.KNIGHT));
-                moves.add(new ChessMove(myPosition, right, ChessPiece.PieceType.QUEEN));
-            } else {
-                moves.add(new ChessMove(myPosition, right, null));
-            }
-        }
-
-        return moves;
-    }
-}
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+public class MovesCalculator {
+
+    private static final ChessPiece.PieceType[] PROMOTIONS = {ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.QUEEN};
+
+    public static Collection<ChessMove> calculateMoves(ChessBoard board, ChessPosition myPosition) {
+        int[] buffer = new int[PackedMove.MAX_MOVES];
+        int count = generateMoves(board, Bitboards.square(myPosition), buffer, 0);
+        Collection<ChessMove> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            moves.add(PackedMove.toChessMove(buffer[i]));
+        }
+        return moves;
+    }
+
+    /**
+     * Writes the moves of the piece on square into moves, not taking into account moves that are illegal due to
+     * leaving the king in danger, En Passant or Castling
+     *
+     * @param moves buffer to write to
+     * @param count number of moves already in the buffer
+     * @return the number of moves in the buffer afterwards
+     */
+    public static int generateMoves(ChessBoard board, int from, int[] moves, int count) {
+        int piece = board.pieceAt(from);
+        ChessGame.TeamColor color = Bitboards.colorOf(piece);
+        ChessPiece.PieceType type = Bitboards.typeOf(piece);
+
+        if (type == ChessPiece.PieceType.PAWN) {
+            return pawnMoves(board, from, color, moves, count);
+        }
+        long targets = AttackTables.attacks(type, color, from, board.getOccupied()) & ~board.getTeamBitboard(color);
+        for (; targets != 0; targets &= targets - 1) {
+            moves[count++] = PackedMove.encode(from, Long.numberOfTrailingZeros(targets));
+        }
+        return count;
+    }
+
+    /**
+     * Writes every legal move of the team's pieces on fromMask into moves. The king's checkers and pinned pieces are
+     * worked out once up front, so no candidate move has to be played to see whether it leaves the king in danger.
+     *
+     * @param castlingRights  the ChessGame castling right bits still available
+     * @param enPassantSquare the square a pawn may capture onto by En Passant, or -1 if there is none
+     * @param fromMask        bitboard of the squares whose pieces should be generated
+     * @param moves           buffer to write to
+     * @param count           number of moves already in the buffer
+     * @return the number of moves in the buffer afterwards
+     */
+    public static int generateLegalMoves(ChessBoard board, ChessGame.TeamColor team, int castlingRights,
+                                         int enPassantSquare, long fromMask, int[] moves, int count) {
+        return generateLegalMoves(board, team, castlingRights, enPassantSquare, fromMask, -1L, moves, count);
+    }
+
+    /**
+     * Same as {@link #generateLegalMoves(ChessBoard, ChessGame.TeamColor, int, int, long, int[], int)}, but only
+     * writes moves that land on a square in toMask, so captures and quiet moves can be generated separately. En
+     * Passant is generated whenever enPassantSquare is given, whatever toMask holds.
+     */
+    public static int generateLegalMoves(ChessBoard board, ChessGame.TeamColor team, int castlingRights,
+                                         int enPassantSquare, long fromMask, long toMask, int[] moves, int count) {
+        ChessGame.TeamColor enemy = (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK :
+                ChessGame.TeamColor.WHITE;
+        long own = board.getTeamBitboard(team);
+        long occupied = board.getOccupied();
+        long king = board.getBitboard(team, ChessPiece.PieceType.KING);
+        int kingSquare = Long.numberOfTrailingZeros(king);
+
+        // Boards without a king (such as piece move tests) have no check or pins to respect
+        long checkers = 0L;
+        long pinned = 0L;
+        long checkMask = -1L;
+        if (king != 0) {
+            checkers = board.attackersTo(kingSquare, occupied) & board.getTeamBitboard(enemy);
+            pinned = pinnedPieces(board, team, enemy, kingSquare);
+            if (Long.bitCount(checkers) == 1) {
+                // Single check: a move must capture the checker or block between it and the king
+                checkMask = AttackTables.between(kingSquare, Long.numberOfTrailingZeros(checkers)) | checkers;
+            } else if (checkers != 0) {
+                // Double check: only the king can move
+                checkMask = 0L;
+            }
+        }
+
+        if (checkMask != 0) {
+            for (long pieces = own & fromMask & ~king; pieces != 0; pieces &= pieces - 1) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                long allowed = ~own & checkMask & toMask;
+                if ((pinned & Bitboards.bit(from)) != 0) {
+                    // A pinned piece may only move along the line between its king and the pinning piece
+                    allowed &= AttackTables.line(kingSquare, from);
+                }
+                ChessPiece.PieceType type = Bitboards.typeOf(board.pieceAt(from));
+                if (type == ChessPiece.PieceType.PAWN) {
+                    count = legalPawnMoves(board, team, from, allowed, moves, count);
+                    continue;
+                }
+                for (long targets = AttackTables.attacks(type, team, from, occupied) & allowed; targets != 0;
+                     targets &= targets - 1) {
+                    moves[count++] = PackedMove.encode(from, Long.numberOfTrailingZeros(targets));
+                }
+            }
+            if (enPassantSquare >= 0) {
+                count = enPassantMoves(board, team, enemy, enPassantSquare, fromMask, moves, count);
+            }
+        }
+        if ((king & fromMask) != 0) {
+            count = legalKingMoves(board, team, enemy, kingSquare, castlingRights, checkers != 0, toMask, moves,
+                    count);
+        }
+        return count;
+    }
+
+    // Own pieces that are the only piece between their king and an enemy rook, bishop or queen on the same line
+    private static long pinnedPieces(ChessBoard board, ChessGame.TeamColor team, ChessGame.TeamColor enemy,
+                                     int kingSquare) {
+        long queens = board.getBitboard(enemy, ChessPiece.PieceType.QUEEN);
+        long rooks = board.getBitboard(enemy, ChessPiece.PieceType.ROOK) | queens;
+        long bishops = board.getBitboard(enemy, ChessPiece.PieceType.BISHOP) | queens;
+        long snipers = (AttackTables.rookAttacks(kingSquare, 0L) & rooks)
+                | (AttackTables.bishopAttacks(kingSquare, 0L) & bishops);
+        long pinned = 0L;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = AttackTables.between(kingSquare, Long.numberOfTrailingZeros(snipers))
+                    & board.getOccupied();
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & board.getTeamBitboard(team);
+            }
+        }
+        return pinned;
+    }
+
+    private static int legalPawnMoves(ChessBoard board, ChessGame.TeamColor team, int from, long allowed, int[] moves,
+                                      int count) {
+        long empty = ~board.getOccupied();
+        int direction = (team == ChessGame.TeamColor.BLACK) ? -8 : 8;
+        int startRow = (team == ChessGame.TeamColor.BLACK) ? 7 : 2;
+
+        int one = from + direction;
+        if (one >= 0 && one < 64 && (empty & Bitboards.bit(one)) != 0) {
+            if ((allowed & Bitboards.bit(one)) != 0) {
+                count = addPawnMove(from, one, moves, count);
+            }
+            int two = one + direction;
+            if (Bitboards.row(from) == startRow && (empty & allowed & Bitboards.bit(two)) != 0) {
+                moves[count++] = PackedMove.encode(from, two, null, PackedMove.DOUBLE_PUSH);
+            }
+        }
+
+        long captures = AttackTables.pawnAttacks(team, from) & board.getOccupied() & allowed;
+        for (; captures != 0; captures &= captures - 1) {
+            count = addPawnMove(from, Long.numberOfTrailingZeros(captures), moves, count);
+        }
+        return count;
+    }
+
+    private static int enPassantMoves(ChessBoard board, ChessGame.TeamColor team, ChessGame.TeamColor enemy,
+                                      int target, long fromMask, int[] moves, int count) {
+        int capturedSquare = target + ((team == ChessGame.TeamColor.WHITE) ? -8 : 8);
+        if (board.pieceAt(capturedSquare) != Bitboards.pieceIndex(enemy, ChessPiece.PieceType.PAWN)) {
+            return count;
+        }
+        long king = board.getBitboard(team, ChessPiece.PieceType.KING);
+        long capturers = AttackTables.pawnAttacks(enemy, target) & board.getBitboard(team, ChessPiece.PieceType.PAWN)
+                & fromMask;
+        for (; capturers != 0; capturers &= capturers - 1) {
+            int from = Long.numberOfTrailingZeros(capturers);
+            // Both pawns leave their squares at once, so check the king directly on the board after the capture
+            long occupied = (board.getOccupied() ^ Bitboards.bit(from) ^ Bitboards.bit(capturedSquare))
+                    | Bitboards.bit(target);
+            if (king == 0 || (board.attackersTo(Long.numberOfTrailingZeros(king), occupied) & board.getTeamBitboard(
+                    enemy) & ~Bitboards.bit(capturedSquare)) == 0) {
+                moves[count++] = PackedMove.encode(from, target, null, PackedMove.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private static int legalKingMoves(ChessBoard board, ChessGame.TeamColor team, ChessGame.TeamColor enemy,
+                                      int kingSquare, int castlingRights, boolean inCheck, long toMask, int[] moves,
+                                      int count) {
+        // The king must not be able to hide behind itself from a slider, so look through its own square
+        long occupied = board.getOccupied() ^ Bitboards.bit(kingSquare);
+        for (long targets = AttackTables.kingAttacks(kingSquare) & ~board.getTeamBitboard(team) & toMask;
+             targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (!board.isSquareAttacked(to, enemy, occupied)) {
+                moves[count++] = PackedMove.encode(kingSquare, to);
+            }
+        }
+
+        // Castling move check
+        int home = (team == ChessGame.TeamColor.WHITE) ? Bitboards.square(1, 5) : Bitboards.square(8, 5);
+        if (inCheck || kingSquare != home) {
+            return count;
+        }
+        int rook = Bitboards.pieceIndex(team, ChessPiece.PieceType.ROOK);
+        int kingSide = (team == ChessGame.TeamColor.WHITE) ? ChessGame.WHITE_KING_SIDE : ChessGame.BLACK_KING_SIDE;
+        int queenSide = (team == ChessGame.TeamColor.WHITE) ? ChessGame.WHITE_QUEEN_SIDE : ChessGame.BLACK_QUEEN_SIDE;
+        if ((castlingRights & kingSide) != 0 && (toMask & Bitboards.bit(home + 2)) != 0
+                && board.pieceAt(home + 3) == rook
+                && (board.getOccupied() & AttackTables.between(home, home + 3)) == 0
+                && !board.isSquareAttacked(home + 1, enemy) && !board.isSquareAttacked(home + 2, enemy)) {
+            moves[count++] = PackedMove.encode(home, home + 2, null, PackedMove.CASTLE);
+        }
+        if ((castlingRights & queenSide) != 0 && (toMask & Bitboards.bit(home - 2)) != 0
+                && board.pieceAt(home - 4) == rook
+                && (board.getOccupied() & AttackTables.between(home, home - 4)) == 0
+                && !board.isSquareAttacked(home - 1, enemy) && !board.isSquareAttacked(home - 2, enemy)) {
+            moves[count++] = PackedMove.encode(home, home - 2, null, PackedMove.CASTLE);
+        }
+        return count;
+    }
+
+    private static int pawnMoves(ChessBoard board, int from, ChessGame.TeamColor color, int[] moves, int count) {
+        long empty = ~board.getOccupied();
+        int direction = (color == ChessGame.TeamColor.BLACK) ? -8 : 8;
+        int startRow = (color == ChessGame.TeamColor.BLACK) ? 7 : 2;
+
+        int one = from + direction;
+        if (one >= 0 && one < 64 && (empty & Bitboards.bit(one)) != 0) {
+            count = addPawnMove(from, one, moves, count);
+            int two = one + direction;
+            if (Bitboards.row(from) == startRow && (empty & Bitboards.bit(two)) != 0) {
+                moves[count++] = PackedMove.encode(from, two, null, PackedMove.DOUBLE_PUSH);
+            }
+        }
+
+        long captures = AttackTables.pawnAttacks(color, from) & board.getTeamBitboard(
+                color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        for (; captures != 0; captures &= captures - 1) {
+            count = addPawnMove(from, Long.numberOfTrailingZeros(captures), moves, count);
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int from, int to, int[] moves, int count) {
+        if (Bitboards.row(to) == 1 || Bitboards.row(to) == 8) {
+            for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                moves[count++] = PackedMove.encode(from, to, promotion, PackedMove.NORMAL);
+            }
+        } else {
+            moves[count++] = PackedMove.encode(from, to);
+        }
+        return count;
+    }
+}
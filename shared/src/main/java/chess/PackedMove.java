@@ -0,0 +1,101 @@
+package chess;
+
+/**
+ * A chess move packed into a single int so move lists can live in plain {@code int[]} buffers.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square (see {@link Bitboards}), bits 12-14 the promotion piece
+ * type (ordinal + 1, or 0 for none) and bits 15-16 a flag for moves that need special handling on the board.
+ */
+public final class PackedMove {
+
+    /**
+     * Largest number of moves a single position can produce, used to size move buffers
+     */
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * Marks "no move", never a legal move since its start and end squares are equal
+     */
+    public static final int NONE = 0;
+
+    public static final int NORMAL = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int CASTLE = 3;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int encode(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flag) {
+        int move = from | (to << 6) | (flag << 15);
+        return promotion == null ? move : move | ((promotion.ordinal() + 1) << 12);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the type to promote to, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotion = (move >>> 12) & 0x7;
+        return promotion == 0 ? null : TYPES[promotion - 1];
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & 0x7000) != 0;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 15) & 0x3;
+    }
+
+    /**
+     * @return whether two moves go between the same squares with the same promotion, ignoring flags
+     */
+    public static boolean sameMove(int first, int second) {
+        return (first & 0x7FFF) == (second & 0x7FFF);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)), promotion(move));
+    }
+
+    /**
+     * Packs a move without its flag, which is enough to look it up with {@link #sameMove}
+     */
+    public static int fromChessMove(ChessMove move) {
+        return encode(Bitboards.square(move.getStartPosition()), Bitboards.square(move.getEndPosition()),
+                move.getPromotionPiece(), NORMAL);
+    }
+
+    /**
+     * @return the move in coordinate notation, such as e2e4 or e7e8q
+     */
+    public static String toString(int move) {
+        StringBuilder text = new StringBuilder(5);
+        appendSquare(text, from(move));
+        appendSquare(text, to(move));
+        ChessPiece.PieceType promotion = promotion(move);
+        if (promotion != null) {
+            char letter = (promotion == ChessPiece.PieceType.KNIGHT) ? 'n' : promotion.name().charAt(0);
+            text.append(Character.toLowerCase(letter));
+        }
+        return text.toString();
+    }
+
+    private static void appendSquare(StringBuilder text, int square) {
+        text.append((char) ('a' + Bitboards.column(square) - 1)).append((char) ('0' + Bitboards.row(square)));
+    }
+}
@@ -0,0 +1,67 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key for every piece on its square, plus keys
+ * for black to move, each castling right still available and the file of a capturable En Passant pawn, so a move
+ * updates it with a handful of XORs instead of rehashing the board.
+ */
+public final class Zobrist {
+
+    // Fixed seed so keys are stable across runs and processes (keys may be stored or shared between servers)
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+
+    private static final long[] PIECE_SQUARE = new long[12 * 64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            PIECE_SQUARE[i] = random.nextLong();
+        }
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            rights[i] = random.nextLong();
+        }
+        // Each combination of rights is the XOR of its individual rights
+        for (int combination = 0; combination < CASTLING.length; combination++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((combination & (1 << i)) != 0) {
+                    CASTLING[combination] ^= rights[i];
+                }
+            }
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            EN_PASSANT_FILE[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece * 64 + square];
+    }
+
+    /**
+     * @param rights a combination of the ChessGame castling right bits
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param column the column (1-8) of the pawn that can be captured En Passant
+     */
+    public static long enPassant(int column) {
+        return EN_PASSANT_FILE[column - 1];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+}
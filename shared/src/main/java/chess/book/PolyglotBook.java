@@ -0,0 +1,175 @@
+package chess.book;
+
+import chess.Bitboards;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * An opening book in Polyglot {@code .bin} format: 16-byte big-endian entries of position key, move, weight and
+ * learn data, sorted by key.
+ * <p>
+ * The file is memory-mapped rather than read, so the book takes no heap space and every process that opens the same
+ * file shares one copy of it in the operating system's page cache. Lookups binary-search the mapping with absolute
+ * reads, so one book can be shared by any number of threads.
+ */
+public final class PolyglotBook {
+
+    private static final int ENTRY_SIZE = 16;
+    // Polyglot promotion codes 1-4, indexed by code
+    private static final ChessPiece.PieceType[] PROMOTIONS = {null, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN};
+
+    private final ByteBuffer entries;
+    private final long count;
+    private final PolyglotKeys keys;
+
+    private PolyglotBook(ByteBuffer entries, PolyglotKeys keys) {
+        this.entries = entries;
+        this.count = entries.capacity() / ENTRY_SIZE;
+        this.keys = keys;
+    }
+
+    /**
+     * Maps a book file built with the standard Polyglot keys, see {@link #open(Path, PolyglotKeys)}
+     */
+    public static PolyglotBook open(Path file) throws IOException {
+        return open(file, PolyglotKeys.STANDARD);
+    }
+
+    /**
+     * Maps a book file read-only. The mapping stays valid after the file is closed, until the book is garbage
+     * collected.
+     *
+     * @throws IOException if the file cannot be read, or is too large to map in one piece (over 2 GB)
+     */
+    public static PolyglotBook open(Path file, PolyglotKeys keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Opening book is too large to map: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size - size % ENTRY_SIZE);
+            return new PolyglotBook(mapped, keys);
+        }
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * A book move for a position
+     *
+     * @param move   the packed move, with its flag as {@link ChessGame#validMoves(int[])} gives it
+     * @param weight how often the move should be chosen relative to the position's other book moves
+     */
+    public record Entry(int move, int weight) {
+    }
+
+    /**
+     * @return the legal book moves for the game's current position, best weighted first as the book orders them, or
+     * an empty list if the position is not in the book
+     */
+    public List<Entry> lookup(ChessGame game) {
+        long key = keys.key(game);
+        List<Entry> found = new ArrayList<>();
+        int[] legal = null;
+        int legalCount = 0;
+        for (long index = lowerBound(key); index < count && keyAt(index) == key; index++) {
+            int offset = (int) (index * ENTRY_SIZE);
+            int bookMove = entries.getShort(offset + 8) & 0xFFFF;
+            int weight = entries.getShort(offset + 10) & 0xFFFF;
+            if (legal == null) {
+                legal = new int[PackedMove.MAX_MOVES];
+                legalCount = game.validMoves(legal);
+            }
+            // Keys can collide, so only moves that are legal here are trusted
+            int move = match(game, bookMove, legal, legalCount);
+            if (move != PackedMove.NONE) {
+                found.add(new Entry(move, weight));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Picks a book move at random in proportion to the weights, so a bot does not play the same opening every game
+     *
+     * @return the packed move, or {@link PackedMove#NONE} if the position is not in the book or all its moves have
+     * zero weight
+     */
+    public int pickMove(ChessGame game, RandomGenerator random) {
+        List<Entry> moves = lookup(game);
+        int total = 0;
+        for (Entry entry : moves) {
+            total += entry.weight();
+        }
+        if (total == 0) {
+            return PackedMove.NONE;
+        }
+        int choice = random.nextInt(total);
+        for (Entry entry : moves) {
+            choice -= entry.weight();
+            if (choice < 0) {
+                return entry.move();
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    // Index of the first entry whose key is not below the given one, comparing keys as unsigned numbers
+    private long lowerBound(long key) {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(long index) {
+        return entries.getLong((int) (index * ENTRY_SIZE));
+    }
+
+    /**
+     * Polyglot moves pack the end file and row in bits 0-5, the start in bits 6-11 and the promotion in bits 12-14,
+     * and write castling as the king taking its own rook
+     */
+    private static int match(ChessGame game, int bookMove, int[] legal, int legalCount) {
+        int to = bookMove & 0x3F;
+        int from = (bookMove >>> 6) & 0x3F;
+        ChessPiece.PieceType promotion = PROMOTIONS[Math.min((bookMove >>> 12) & 0x7, 4)];
+        int piece = game.getBoard().pieceAt(from);
+        if (piece != Bitboards.NO_PIECE && Bitboards.typeOf(piece) == ChessPiece.PieceType.KING
+                && game.getBoard().pieceAt(to) == Bitboards.pieceIndex(Bitboards.colorOf(piece),
+                ChessPiece.PieceType.ROOK)) {
+            to = (to > from) ? from + 2 : from - 2;
+        }
+        int wanted = PackedMove.encode(from, to, promotion, PackedMove.NORMAL);
+        for (int i = 0; i < legalCount; i++) {
+            if (PackedMove.sameMove(legal[i], wanted)) {
+                return legal[i];
+            }
+        }
+        return PackedMove.NONE;
+    }
+}
@@ -0,0 +1,327 @@
+package chess.notation;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation: piece placement, side to move, castling rights, En Passant
+ * square, halfmove clock and fullmove number.
+ * <p>
+ * The reader works straight on the characters of a {@link CharSequence} or the bytes of a {@link ByteBuffer},
+ * without splitting them into strings, so bulk imports can parse FENs from a mapped file with no garbage beyond the
+ * games themselves.
+ */
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // FEN letter of each piece index, WHITE pieces first
+    private static final String PIECE_LETTERS = "KQBNRPkqbnrp";
+
+    private Fen() {
+    }
+
+    /**
+     * Builds a game from a FEN. Only the placement and side to move are required; missing castling and En Passant
+     * fields mean none, and missing clocks mean halfmove clock 0 and move 1.
+     *
+     * @param fen the position to read, surrounding whitespace allowed
+     * @return a game set up in that position
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static ChessGame read(CharSequence fen) {
+        return new Reader(fen, 0, fen.length()).read();
+    }
+
+    /**
+     * Reads one FEN from a buffer of ASCII text, from its position up to the end of the line or the buffer, and
+     * moves the position past the line. Calling this until the buffer has nothing remaining reads a file of one FEN
+     * per line.
+     *
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static ChessGame read(ByteBuffer fen) {
+        int start = fen.position();
+        int end = start;
+        while (end < fen.limit() && fen.get(end) != '\n') {
+            end++;
+        }
+        fen.position(Math.min(end + 1, fen.limit()));
+        return new Reader(new AsciiView(fen), start, end).read();
+    }
+
+    /**
+     * @return the game's position as a FEN with all six fields
+     */
+    public static String write(ChessGame game) {
+        return write(game, new StringBuilder(90)).toString();
+    }
+
+    /**
+     * Appends the game's position as a FEN with all six fields
+     *
+     * @return the builder
+     */
+    public static StringBuilder write(ChessGame game, StringBuilder out) {
+        ChessBoard board = game.getBoard();
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = board.pieceAt(row * 8 + col);
+                if (piece == Bitboards.NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(PIECE_LETTERS.charAt(piece));
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                out.append('/');
+            }
+        }
+
+        out.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        int rights = castlingRights(game);
+        if (rights == 0) {
+            out.append('-');
+        }
+        appendIf(out, rights, ChessGame.WHITE_KING_SIDE, 'K');
+        appendIf(out, rights, ChessGame.WHITE_QUEEN_SIDE, 'Q');
+        appendIf(out, rights, ChessGame.BLACK_KING_SIDE, 'k');
+        appendIf(out, rights, ChessGame.BLACK_QUEEN_SIDE, 'q');
+
+        // FEN names the square the pawn passed over
+        ChessPosition pawn = game.getPawnMovedTwo();
+        if (pawn == null) {
+            out.append(" -");
+        } else {
+            out.append(' ').append((char) ('a' + pawn.getColumn() - 1)).append(pawn.getRow() == 4 ? '3' : '6');
+        }
+        return out.append(' ').append(game.getHalfmoveClock()).append(' ').append(game.getFullmoveNumber());
+    }
+
+    private static void appendIf(StringBuilder out, int rights, int right, char letter) {
+        if ((rights & right) != 0) {
+            out.append(letter);
+        }
+    }
+
+    // The game's castling rights, less any whose king or rook is not on its starting square
+    private static int castlingRights(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int rights = game.getCastlingRights();
+        int[][] squares = {{ChessGame.WHITE_KING_SIDE, 4, 7}, {ChessGame.WHITE_QUEEN_SIDE, 4, 0},
+                {ChessGame.BLACK_KING_SIDE, 60, 63}, {ChessGame.BLACK_QUEEN_SIDE, 60, 56}};
+        for (int[] castle : squares) {
+            ChessGame.TeamColor color = (castle[1] == 4) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            if (board.pieceAt(castle[1]) != Bitboards.pieceIndex(color, ChessPiece.PieceType.KING)
+                    || board.pieceAt(castle[2]) != Bitboards.pieceIndex(color, ChessPiece.PieceType.ROOK)) {
+                rights &= ~castle[0];
+            }
+        }
+        return rights;
+    }
+
+    /**
+     * Parses one FEN between two indexes of a character sequence, field by field
+     */
+    private static final class Reader {
+
+        private final CharSequence text;
+        private final int start;
+        private final int end;
+        private int index;
+
+        Reader(CharSequence text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            this.index = start;
+        }
+
+        ChessGame read() {
+            skipSpaces();
+            ChessBoard board = readPlacement();
+            ChessGame game = new ChessGame();
+            game.setBoard(board);
+
+            skipSpaces();
+            char side = (index < end) ? text.charAt(index++) : ' ';
+            game.setTeamTurn(switch (side) {
+                case 'w' -> ChessGame.TeamColor.WHITE;
+                case 'b' -> ChessGame.TeamColor.BLACK;
+                default -> throw error("Bad side to move");
+            });
+            if (index < end && !isSpace(text.charAt(index))) {
+                throw error("Bad side to move");
+            }
+
+            skipSpaces();
+            game.setCastlingRights(readCastlingRights());
+            skipSpaces();
+            readEnPassant(game);
+            skipSpaces();
+            if (index < end) {
+                game.setHalfmoveClock(readNumber());
+                skipSpaces();
+            }
+            if (index < end) {
+                game.setFullmoveNumber(Math.max(readNumber(), 1));
+                skipSpaces();
+            }
+            if (index < end) {
+                throw error("Unexpected text after the fullmove number");
+            }
+            return game;
+        }
+
+        private ChessBoard readPlacement() {
+            ChessBoard board = new ChessBoard();
+            int row = 8;
+            int col = 1;
+            while (index < end && !isSpace(text.charAt(index))) {
+                char c = text.charAt(index++);
+                if (c == '/') {
+                    if (col != 9 || row == 1) {
+                        throw error("Rank " + row + " does not have 8 squares");
+                    }
+                    row--;
+                    col = 1;
+                } else if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                    if (col > 9) {
+                        throw error("Rank " + row + " has more than 8 squares");
+                    }
+                } else {
+                    int piece = PIECE_LETTERS.indexOf(c);
+                    if (piece < 0) {
+                        throw error("Unknown piece " + c);
+                    }
+                    if (col > 8) {
+                        throw error("Rank " + row + " has more than 8 squares");
+                    }
+                    board.addPiece(ChessPosition.of(row, col),
+                            ChessPiece.of(Bitboards.colorOf(piece), Bitboards.typeOf(piece)));
+                    col++;
+                }
+            }
+            if (row != 1 || col != 9) {
+                throw error("Placement does not cover 8 ranks of 8 squares");
+            }
+            return board;
+        }
+
+        private int readCastlingRights() {
+            if (index < end && text.charAt(index) == '-') {
+                index++;
+                return 0;
+            }
+            int rights = 0;
+            while (index < end && !isSpace(text.charAt(index))) {
+                rights |= switch (text.charAt(index++)) {
+                    case 'K' -> ChessGame.WHITE_KING_SIDE;
+                    case 'Q' -> ChessGame.WHITE_QUEEN_SIDE;
+                    case 'k' -> ChessGame.BLACK_KING_SIDE;
+                    case 'q' -> ChessGame.BLACK_QUEEN_SIDE;
+                    default -> throw error("Bad castling rights");
+                };
+            }
+            return rights;
+        }
+
+        // FEN names the square passed over, the pawn that can be captured is just in front of it. The square must be
+        // behind the team that just moved; if their pawn is not in front of it the field is dropped, as Fen.write
+        // drops castling rights it cannot honor
+        private void readEnPassant(ChessGame game) {
+            if (index >= end || text.charAt(index) == '-') {
+                index++;
+                return;
+            }
+            if (index + 1 >= end) {
+                throw error("Bad En Passant square");
+            }
+            int col = text.charAt(index) - 'a' + 1;
+            char row = text.charAt(index + 1);
+            boolean whiteToMove = game.getTeamTurn() == ChessGame.TeamColor.WHITE;
+            if (col < 1 || col > 8 || row != (whiteToMove ? '6' : '3')) {
+                throw error("Bad En Passant square");
+            }
+            index += 2;
+            ChessPosition pawn = ChessPosition.of(whiteToMove ? 5 : 4, col);
+            ChessGame.TeamColor moved = whiteToMove ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            if (game.getBoard().pieceAt(Bitboards.square(pawn))
+                    == Bitboards.pieceIndex(moved, ChessPiece.PieceType.PAWN)) {
+                game.setPawnMovedTwo(pawn);
+            }
+        }
+
+        private int readNumber() {
+            int value = 0;
+            int digits = 0;
+            while (index < end && !isSpace(text.charAt(index))) {
+                char c = text.charAt(index++);
+                if (c < '0' || c > '9' || ++digits > 9) {
+                    throw error("Bad move number");
+                }
+                value = value * 10 + (c - '0');
+            }
+            return value;
+        }
+
+        private void skipSpaces() {
+            while (index < end && isSpace(text.charAt(index))) {
+                index++;
+            }
+        }
+
+        private static boolean isSpace(char c) {
+            return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+        }
+
+        // Only a malformed FEN pays for turning the text into a string
+        private IllegalArgumentException error(String problem) {
+            return new IllegalArgumentException(problem + " in FEN: " + text.subSequence(start, end));
+        }
+    }
+
+    /**
+     * The bytes of a buffer read as ASCII characters, without copying them
+     */
+    private record AsciiView(ByteBuffer bytes) implements CharSequence {
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            StringBuilder copy = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                copy.append(charAt(i));
+            }
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package chess.notation;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One game of a PGN file: its tag pairs, such as Event, White and Result, and its moves from the start position
+ *
+ * @param tags  tag values by name, in the order they were read
+ * @param moves the packed moves of the main line, oldest first
+ */
+public record PgnGame(Map<String, String> tags, int[] moves) {
+
+    public static final String UNFINISHED = "*";
+
+    /**
+     * Makes a PGN game of every move played in a game so far. A game set up from somewhere other than the usual
+     * start gets SetUp and FEN tags, and the Result tag is worked out from the game's status unless given. A game
+     * resigned without saying which team resigned has no result to work out, so callers pass the Result tag for it.
+     *
+     * @param tags tags to include, copied
+     */
+    public static PgnGame of(ChessGame game, Map<String, String> tags) {
+        int[] moves = new int[game.historySize()];
+        for (int ply = 0; ply < moves.length; ply++) {
+            moves[ply] = game.historyMove(ply);
+        }
+        Map<String, String> copy = new LinkedHashMap<>(tags);
+        copy.putIfAbsent("Result", result(game));
+
+        ChessGame start = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        while (start.historySize() > 0) {
+            start.undoMove();
+        }
+        String fen = Fen.write(start);
+        if (!fen.equals(Fen.START_POSITION)) {
+            copy.put("SetUp", "1");
+            copy.put("FEN", fen);
+        }
+        return new PgnGame(copy, moves);
+    }
+
+    /**
+     * @return the Result tag, or {@link #UNFINISHED} if there is none
+     */
+    public String result() {
+        return tags.getOrDefault("Result", UNFINISHED);
+    }
+
+    /**
+     * @return a new game in the position before the first move, from the FEN tag if there is one
+     * @throws IllegalArgumentException if the FEN tag is malformed
+     */
+    public ChessGame startPosition() {
+        String fen = tags.get("FEN");
+        return (fen == null) ? new ChessGame() : Fen.read(fen);
+    }
+
+    /**
+     * @return a new game with every move played, so it can be taken back move by move
+     */
+    public ChessGame replay() {
+        ChessGame game = startPosition();
+        for (int move : moves) {
+            game.doMove(move);
+        }
+        return game;
+    }
+
+    private static String result(ChessGame game) {
+        return switch (game.getGameStatus()) {
+            case CHECKMATE -> (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? "0-1" : "1-0";
+            case STALEMATE, DRAW -> "1/2-1/2";
+            case RESIGNED -> (game.getResignedTeam() == null) ? UNFINISHED
+                    : (game.getResignedTeam() == ChessGame.TeamColor.WHITE) ? "0-1" : "1-0";
+            default -> UNFINISHED;
+        };
+    }
+}
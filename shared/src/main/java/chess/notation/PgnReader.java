@@ -0,0 +1,298 @@
+package chess.notation;
+
+import chess.ChessGame;
+import chess.PackedMove;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the games of a PGN file one at a time, so a database of millions of games is read in the memory of a single
+ * game. Each game's SAN moves are checked against the legal moves as they are read.
+ * <p>
+ * The file is read through a fixed buffer and lexed a byte at a time. Comments, variations, NAGs and move numbers
+ * are skipped, so only the tags and the main line are kept.
+ */
+public final class PgnReader implements Iterator<PgnGame>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int END = -1;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+    // Reused for each token and tag value
+    private byte[] token = new byte[64];
+    private int tokenLength;
+    private final StringBuilder san = new StringBuilder(16);
+    private int[] moves = new int[256];
+    private boolean atEnd;
+
+    public PgnReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * @throws IOException if the file cannot be opened
+     */
+    public static PgnReader open(Path file) throws IOException {
+        return new PgnReader(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        skipSpaces();
+        return peek() != END;
+    }
+
+    /**
+     * Reads the next game. A game with a bad tag or move is read to its end before the exception is thrown, so
+     * reading can carry on with the game after it.
+     *
+     * @throws IllegalArgumentException if the game is malformed or has an illegal move
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    @Override
+    public PgnGame next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        String error = null;
+        while (peek() == '[') {
+            read();
+            String problem = readTag(tags);
+            error = (error == null) ? problem : error;
+            skipSpaces();
+        }
+
+        ChessGame game = null;
+        try {
+            game = new PgnGame(tags, null).startPosition();
+        } catch (IllegalArgumentException e) {
+            error = (error == null) ? e.getMessage() : error;
+        }
+        int count = 0;
+        String result = null;
+        while (result == null) {
+            skipSpaces();
+            int c = peek();
+            if (c == END || c == '[') {
+                break;
+            }
+            read();
+            if (c == '{') {
+                skipPast('}');
+            } else if (c == ';') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == ')' || c == '}') {
+                error = (error == null) ? "Unmatched " + (char) c : error;
+            } else {
+                readToken(c);
+                if (isResult()) {
+                    result = tokenString();
+                } else if (c != '$' && game != null && error == null) {
+                    int move = readMove(game);
+                    if (move == PackedMove.NONE) {
+                        continue;
+                    }
+                    if (move < 0) {
+                        error = "Illegal move " + san + " at ply " + (count + 1);
+                        continue;
+                    }
+                    if (count == moves.length) {
+                        moves = Arrays.copyOf(moves, count * 2);
+                    }
+                    moves[count++] = move;
+                    game.doMove(move);
+                }
+            }
+        }
+
+        if (error != null) {
+            throw new IllegalArgumentException(error + " in PGN game " + tags);
+        }
+        if (result != null) {
+            tags.putIfAbsent("Result", result);
+        }
+        return new PgnGame(tags, Arrays.copyOf(moves, count));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Reads a tag after its [, returning a problem with it or null
+    private String readTag(Map<String, String> tags) {
+        skipSpaces();
+        tokenLength = 0;
+        while (peek() != END && !isSpace(peek()) && peek() != '"' && peek() != ']') {
+            append(read());
+        }
+        String name = tokenString();
+        skipSpaces();
+        if (read() != '"') {
+            skipPast(']');
+            return "Bad tag " + name;
+        }
+        tokenLength = 0;
+        for (int c = read(); c != '"'; c = read()) {
+            if (c == END) {
+                return "Unterminated tag " + name;
+            }
+            append((c == '\\') ? read() : c);
+        }
+        tags.put(name, new String(token, 0, tokenLength, StandardCharsets.UTF_8));
+        skipPast(']');
+        return null;
+    }
+
+    // Reads a movetext token that started with c, up to a space or a character that starts something else
+    private void readToken(int c) {
+        tokenLength = 0;
+        append(c);
+        while (peek() != END && !isSpace(peek()) && "{};()[$".indexOf(peek()) < 0) {
+            append(read());
+        }
+    }
+
+    // The legal move the token names after any move number, NONE for a bare move number and -1 if it is illegal
+    private int readMove(ChessGame game) {
+        int start = 0;
+        if (token[0] >= '0' && token[0] <= '9') {
+            for (int i = 0; i < tokenLength; i++) {
+                if (token[i] == '.') {
+                    start = i + 1;
+                }
+            }
+        }
+        san.setLength(0);
+        for (int i = start; i < tokenLength; i++) {
+            san.append((char) (token[i] & 0xFF));
+        }
+        if (san.isEmpty()) {
+            return PackedMove.NONE;
+        }
+        try {
+            return San.read(game, san);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private boolean isResult() {
+        return is("1-0") || is("0-1") || is("1/2-1/2") || is("*");
+    }
+
+    private boolean is(String text) {
+        if (tokenLength != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++) {
+            if (token[i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String tokenString() {
+        return new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+    }
+
+    // Skips a variation after its (, with any variations and comments inside it
+    private void skipVariation() {
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            switch (c) {
+                case END -> depth = 0;
+                case '(' -> depth++;
+                case ')' -> depth--;
+                case '{' -> skipPast('}');
+                case ';' -> skipPast('\n');
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void skipPast(int last) {
+        int c;
+        do {
+            c = read();
+        } while (c != last && c != END);
+    }
+
+    // Skips spaces and % escape lines between tokens
+    private void skipSpaces() {
+        while (true) {
+            int c = peek();
+            if (isSpace(c)) {
+                read();
+            } else if (c == '%') {
+                skipPast('\n');
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private void append(int c) {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, tokenLength * 2);
+        }
+        token[tokenLength++] = (byte) c;
+    }
+
+    private int peek() {
+        return fill() ? buffer.get(buffer.position()) & 0xFF : END;
+    }
+
+    private int read() {
+        return fill() ? buffer.get() & 0xFF : END;
+    }
+
+    // Makes sure the buffer has a byte to read, false at the end of the file
+    private boolean fill() {
+        if (buffer.hasRemaining()) {
+            return true;
+        }
+        if (atEnd) {
+            return false;
+        }
+        try {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            atEnd = read < 0;
+            return buffer.hasRemaining();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
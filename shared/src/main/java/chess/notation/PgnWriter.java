@@ -0,0 +1,150 @@
+package chess.notation;
+
+import chess.ChessGame;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes games to a PGN file in export format: the seven standard tags first, then any others, a blank line, and
+ * the moves in SAN wrapped at 80 columns and followed by the result.
+ */
+public final class PgnWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LINE_LENGTH = 80;
+    private static final List<String> SEVEN_TAG_ROSTER = List.of("Event", "Site", "Date", "Round", "White", "Black",
+            "Result");
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // Reused for the text of each game
+    private final StringBuilder text = new StringBuilder(1024);
+    private final StringBuilder san = new StringBuilder(16);
+
+    public PgnWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates the file, or empties it if it exists
+     *
+     * @throws IOException if the file cannot be opened
+     */
+    public static PgnWriter create(Path file) throws IOException {
+        return new PgnWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Writes the moves played in a game so far, as {@link PgnGame#of}
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write(ChessGame game, Map<String, String> tags) throws IOException {
+        write(PgnGame.of(game, tags));
+    }
+
+    /**
+     * @throws IOException if the file cannot be written
+     */
+    public void write(PgnGame game) throws IOException {
+        text.setLength(0);
+        for (String name : SEVEN_TAG_ROSTER) {
+            appendTag(name, game.tags().getOrDefault(name, name.equals("Date") ? "????.??.??" : "?"));
+        }
+        for (Map.Entry<String, String> tag : game.tags().entrySet()) {
+            if (!SEVEN_TAG_ROSTER.contains(tag.getKey())) {
+                appendTag(tag.getKey(), tag.getValue());
+            }
+        }
+        text.append('\n');
+
+        ChessGame position = game.startPosition();
+        int lineStart = text.length();
+        int[] moves = game.moves();
+        for (int ply = 0; ply < moves.length; ply++) {
+            // A game starting with BLACK to move numbers its first move 1... and so on
+            boolean white = position.getTeamTurn() == ChessGame.TeamColor.WHITE;
+            if (white || ply == 0) {
+                lineStart = appendWord(lineStart, position.getFullmoveNumber() + (white ? "." : "..."));
+            }
+            san.setLength(0);
+            lineStart = appendWord(lineStart, San.write(position, moves[ply], san));
+            position.doMove(moves[ply]);
+        }
+        appendWord(lineStart, game.result());
+        text.append("\n\n");
+        put(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes out what is buffered and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void appendTag(String name, String value) {
+        text.append('[').append(name).append(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                text.append('\\');
+            }
+            text.append(c);
+        }
+        text.append("\"]\n");
+    }
+
+    // Adds a word to the movetext, starting a new line if it would not fit, and returns where the line starts
+    private int appendWord(int lineStart, CharSequence word) {
+        if (text.length() > lineStart) {
+            if (text.length() - lineStart + 1 + word.length() > LINE_LENGTH) {
+                text.append('\n');
+                lineStart = text.length();
+            } else {
+                text.append(' ');
+            }
+        }
+        text.append(word);
+        return lineStart;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > buffer.capacity()) {
+            ByteBuffer whole = ByteBuffer.wrap(bytes);
+            while (whole.hasRemaining()) {
+                channel.write(whole);
+            }
+        } else {
+            buffer.put(bytes);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package chess.notation;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PackedMove;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation, such as {@code e4}, {@code Nbd7}, {@code exd6},
+ * {@code O-O-O} and {@code e8=Q+}, which names a move by its piece and end square and only says where it started
+ * when another piece of the same kind could go there too.
+ */
+public final class San {
+
+    // SAN letter of each piece type by ordinal, none for pawns
+    private static final String PIECE_LETTERS = "KQBNR";
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    // Move lists reused on each thread, so writing and reading whole games does not allocate one per move
+    private static final ThreadLocal<int[]> MOVES = ThreadLocal.withInitial(() -> new int[PackedMove.MAX_MOVES]);
+
+    private San() {
+    }
+
+    /**
+     * @param move a legal move in the game's current position, which is played and taken back again to see whether
+     *             it gives check or mate
+     * @return the move in SAN, with + for check and # for mate
+     */
+    public static String write(ChessGame game, int move) {
+        return write(game, move, new StringBuilder(8)).toString();
+    }
+
+    /**
+     * Appends the move in SAN, as {@link #write(ChessGame, int)}
+     *
+     * @return the builder
+     */
+    public static StringBuilder write(ChessGame game, int move, StringBuilder out) {
+        ChessBoard board = game.getBoard();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int piece = board.pieceAt(from);
+        ChessPiece.PieceType type = Bitboards.typeOf(piece);
+        boolean capture = board.pieceAt(to) != Bitboards.NO_PIECE || PackedMove.flag(move) == PackedMove.EN_PASSANT;
+
+        if (PackedMove.flag(move) == PackedMove.CASTLE) {
+            out.append(to > from ? "O-O" : "O-O-O");
+        } else if (type == ChessPiece.PieceType.PAWN) {
+            if (capture) {
+                out.append(file(from)).append('x');
+            }
+            appendSquare(out, to);
+            if (PackedMove.isPromotion(move)) {
+                out.append('=').append(PIECE_LETTERS.charAt(PackedMove.promotion(move).ordinal()));
+            }
+        } else {
+            out.append(PIECE_LETTERS.charAt(type.ordinal()));
+            appendDisambiguation(out, game, move, piece);
+            if (capture) {
+                out.append('x');
+            }
+            appendSquare(out, to);
+        }
+
+        game.doMove(move);
+        if (game.isInCheck(game.getTeamTurn())) {
+            out.append(game.validMoves(MOVES.get()) == 0 ? '#' : '+');
+        }
+        game.undoMove();
+        return out;
+    }
+
+    /**
+     * Finds the legal move a SAN names in the game's current position. Check, mate and annotation marks are
+     * ignored, castling may be written with zeros, and the = before a promotion may be left out.
+     *
+     * @return the packed move
+     * @throws IllegalArgumentException if the text is not SAN, or names no legal move or more than one
+     */
+    public static int read(ChessGame game, CharSequence san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        int[] moves = MOVES.get();
+        int count = game.validMoves(moves);
+
+        if (isCastle(san, end)) {
+            boolean kingSide = end == 3;
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.flag(moves[i]) == PackedMove.CASTLE
+                        && (PackedMove.to(moves[i]) > PackedMove.from(moves[i])) == kingSide) {
+                    return moves[i];
+                }
+            }
+            throw error("Castling is not legal", san);
+        }
+
+        ChessPiece.PieceType promotion = null;
+        if (end >= 3 && (san.charAt(end - 2) == '=' || isRank(san.charAt(end - 2)))) {
+            promotion = pieceType(Character.toUpperCase(san.charAt(end - 1)));
+            if (promotion != null) {
+                end -= (san.charAt(end - 2) == '=') ? 2 : 1;
+            }
+        }
+        if (end < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1))) {
+            throw error("No destination square", san);
+        }
+        int to = Bitboards.square(san.charAt(end - 1) - '0', san.charAt(end - 2) - 'a' + 1);
+
+        int start = 0;
+        ChessPiece.PieceType type = pieceType(san.charAt(0));
+        if (type == null) {
+            type = ChessPiece.PieceType.PAWN;
+        } else {
+            start = 1;
+        }
+        int fromFile = -1;
+        int fromRank = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (isFile(c)) {
+                fromFile = c - 'a';
+            } else if (isRank(c)) {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                throw error("Unexpected " + c, san);
+            }
+        }
+
+        int found = PackedMove.NONE;
+        ChessBoard board = game.getBoard();
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) == to && PackedMove.flag(move) != PackedMove.CASTLE
+                    && Bitboards.typeOf(board.pieceAt(from)) == type && PackedMove.promotion(move) == promotion
+                    && (fromFile < 0 || (from & 7) == fromFile) && (fromRank < 0 || (from >>> 3) == fromRank)) {
+                if (found != PackedMove.NONE) {
+                    throw error("Ambiguous move", san);
+                }
+                found = move;
+            }
+        }
+        if (found == PackedMove.NONE) {
+            throw error("Illegal move", san);
+        }
+        return found;
+    }
+
+    // Adds the start file, rank or both when another piece of the same kind can also move to the end square
+    private static void appendDisambiguation(StringBuilder out, ChessGame game, int move, int piece) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessBoard board = game.getBoard();
+        int[] moves = MOVES.get();
+        int count = game.validMoves(moves);
+        boolean ambiguous = false;
+        boolean sameFile = false;
+        boolean sameRank = false;
+        for (int i = 0; i < count; i++) {
+            int other = PackedMove.from(moves[i]);
+            if (PackedMove.to(moves[i]) == to && other != from && board.pieceAt(other) == piece) {
+                ambiguous = true;
+                sameFile |= (other & 7) == (from & 7);
+                sameRank |= (other >>> 3) == (from >>> 3);
+            }
+        }
+        if (ambiguous && (!sameFile || sameRank)) {
+            out.append(file(from));
+        }
+        if (ambiguous && sameFile) {
+            out.append((char) ('1' + (from >>> 3)));
+        }
+    }
+
+    private static boolean isCastle(CharSequence san, int end) {
+        if (end != 3 && end != 5) {
+            return false;
+        }
+        for (int i = 0; i < end; i++) {
+            char c = san.charAt(i);
+            if ((i % 2 == 0) ? (c != 'O' && c != '0') : c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ChessPiece.PieceType pieceType(char letter) {
+        int index = PIECE_LETTERS.indexOf(letter);
+        return (index < 0) ? null : TYPES[index];
+    }
+
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+
+    private static char file(int square) {
+        return (char) ('a' + (square & 7));
+    }
+
+    private static void appendSquare(StringBuilder out, int square) {
+        out.append(file(square)).append((char) ('1' + (square >>> 3)));
+    }
+
+    private static IllegalArgumentException error(String problem, CharSequence san) {
+        return new IllegalArgumentException(problem + " in SAN: " + san);
+    }
+}
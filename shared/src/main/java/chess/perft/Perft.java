@@ -0,0 +1,126 @@
+package chess.perft;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import chess.notation.Fen;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. Comparing the counts against known values checks
+ * move generation, and the time taken measures how fast it is.
+ * <p>
+ * Run from the command line with {@code java -cp shared/target/classes chess.perft.Perft [maxDepth]} to run the
+ * standard positions, or {@code chess.perft.Perft divide <depth> <fen>} for the count below each root move.
+ */
+public final class Perft {
+
+    private final ChessGame game;
+    // One move buffer per ply so nothing is allocated during the walk
+    private int[][] buffers = new int[0][];
+
+    public Perft(ChessGame game) {
+        this.game = game;
+    }
+
+    /**
+     * @return the number of move sequences of exactly depth moves from the current position
+     */
+    public long perft(int depth) {
+        ensureBuffers(depth);
+        return count(depth);
+    }
+
+    /**
+     * @return the perft count below each legal move of the current position, keyed by the move in coordinate
+     * notation
+     */
+    public Map<String, Long> divide(int depth) {
+        ensureBuffers(depth);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        int[] moves = buffers[depth];
+        int count = game.validMoves(moves);
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            counts.put(PackedMove.toString(moves[i]), count(depth - 1));
+            game.undoMove();
+        }
+        return counts;
+    }
+
+    private long count(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] moves = buffers[depth];
+        int count = game.validMoves(moves);
+        // Every legal move at the last ply is a leaf, so there is no need to play them
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            nodes += count(depth - 1);
+            game.undoMove();
+        }
+        return nodes;
+    }
+
+    private void ensureBuffers(int depth) {
+        if (buffers.length <= depth) {
+            buffers = new int[depth + 1][PackedMove.MAX_MOVES];
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length >= 3 && args[0].equals("divide")) {
+            int depth = Integer.parseInt(args[1]);
+            String fen = String.join(" ", Arrays.copyOfRange(args, 2, args.length));
+            long start = System.nanoTime();
+            long total = 0;
+            for (Map.Entry<String, Long> entry : new Perft(Fen.read(fen)).divide(depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.println();
+            report("divide", depth, total, System.nanoTime() - start);
+            return;
+        }
+
+        int maxDepth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+        for (PerftPosition position : PerftPosition.STANDARD) {
+            Perft perft = new Perft(Fen.read(position.fen()));
+            for (int depth = 1; depth <= Math.min(maxDepth, position.maxDepth()); depth++) {
+                long start = System.nanoTime();
+                long nodes = perft.perft(depth);
+                long time = System.nanoTime() - start;
+                boolean correct = nodes == position.nodes(depth);
+                passed &= correct;
+                totalNodes += nodes;
+                totalTime += time;
+                report(position.name(), depth, nodes, time);
+                if (!correct) {
+                    System.out.println("  FAILED, expected " + position.nodes(depth));
+                }
+            }
+        }
+        System.out.println();
+        report("total", maxDepth, totalNodes, totalTime);
+        System.out.println(passed ? "All counts correct" : "Some counts were WRONG");
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static void report(String name, int depth, long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-10s depth %d  %,14d nodes  %8.3f s  %,12.0f nodes/s%n", name, depth, nodes, seconds,
+                nodes / Math.max(seconds, 1e-9));
+    }
+}
@@ -0,0 +1,160 @@
+package chess.search;
+
+import chess.ChessGame;
+import chess.notation.Fen;
+import chess.tablebase.Tablebases;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Analyses batches of positions in parallel on a {@link ForkJoinPool}, one {@link Search} per position, for work
+ * such as reviewing finished games or mining puzzles.
+ * <p>
+ * Positions are taken from the batch only as fast as they are analysed, and results are handed back in the order
+ * they finish, so no more than a few positions per thread are held at once however long the batch is. The batch can
+ * be a lazy iterator or stream reading from a file or database.
+ */
+public final class BatchAnalyzer implements AutoCloseable {
+
+    // Positions queued or running per thread, enough to keep every thread busy while results are collected
+    private static final int POSITIONS_PER_THREAD = 2;
+
+    private final ForkJoinPool pool;
+    private final int window;
+    private final TranspositionTable table;
+    private final Tablebases tablebases;
+
+    /**
+     * @param threads how many positions to analyse at once
+     */
+    public BatchAnalyzer(int threads) {
+        this(threads, new TranspositionTable(TranspositionTable.DEFAULT_MEGABYTES), null);
+    }
+
+    /**
+     * @param table      the table every search shares
+     * @param tablebases tables to look endgames up in, or null
+     */
+    public BatchAnalyzer(int threads, TranspositionTable table, Tablebases tablebases) {
+        if (threads < 1 || threads > SearchLimits.MAX_THREADS) {
+            throw new IllegalArgumentException("Analysis threads must be between 1 and " + SearchLimits.MAX_THREADS);
+        }
+        this.pool = new ForkJoinPool(threads);
+        this.window = threads * POSITIONS_PER_THREAD;
+        this.table = table;
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * A position to analyse
+     *
+     * @param id     the caller's name for the position, handed back with its result
+     * @param game   the position, which is copied before it is searched and so is never changed
+     * @param limits how far to search this position
+     */
+    public record Job(long id, ChessGame game, SearchLimits limits) {
+
+        /**
+         * @throws IllegalArgumentException if the FEN is malformed
+         */
+        public static Job of(long id, String fen, SearchLimits limits) {
+            return new Job(id, Fen.read(fen), limits);
+        }
+    }
+
+    /**
+     * The result of analysing one position, with its best move, score and principal variation
+     */
+    public record Analysis(Job job, SearchResult result) {
+    }
+
+    /**
+     * Analyses a batch, handing out results as they finish. Jobs are taken from the batch as the results are
+     * read, so the batch is only read as far as the caller has got.
+     *
+     * @return the results in the order they finish, which is not the order of the batch
+     * @throws IllegalStateException from the iterator if a search fails or the reading thread is interrupted
+     */
+    public Iterator<Analysis> analyze(Iterator<Job> jobs) {
+        return new Results(jobs);
+    }
+
+    /**
+     * @return a sequential stream of the results in the order they finish, reading the batch as it is consumed
+     */
+    public Stream<Analysis> analyze(Stream<Job> jobs) {
+        Spliterator<Analysis> results = Spliterators.spliteratorUnknownSize(analyze(jobs.iterator()),
+                Spliterator.NONNULL);
+        return StreamSupport.stream(results, false).onClose(jobs::close);
+    }
+
+    /**
+     * Analyses a whole batch, passing each result to the consumer on the calling thread as it finishes
+     */
+    public void analyze(Iterable<Job> jobs, Consumer<Analysis> consumer) {
+        analyze(jobs.iterator()).forEachRemaining(consumer);
+    }
+
+    /**
+     * Stops the analysis threads once the positions already started have finished
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private Analysis search(Job job) {
+        return new Analysis(job, Search.bestMove(job.game(), job.limits(), table, tablebases));
+    }
+
+    /**
+     * Keeps up to a window of jobs in the pool, starting another each time a result is taken
+     */
+    private final class Results implements Iterator<Analysis> {
+
+        private final Iterator<Job> jobs;
+        private final ExecutorCompletionService<Analysis> finished = new ExecutorCompletionService<>(pool);
+        private int running;
+
+        Results(Iterator<Job> jobs) {
+            this.jobs = jobs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (running < window && jobs.hasNext()) {
+                Job job = jobs.next();
+                finished.submit(() -> search(job));
+                running++;
+            }
+            return running > 0;
+        }
+
+        @Override
+        public Analysis next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                Analysis analysis = finished.take().get();
+                running--;
+                return analysis;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for analysis", e);
+            } catch (ExecutionException e) {
+                running--;
+                throw new IllegalStateException("Analysis failed", e.getCause());
+            }
+        }
+    }
+}
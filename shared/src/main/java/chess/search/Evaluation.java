@@ -0,0 +1,187 @@
+package chess.search;
+
+import chess.AttackTables;
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Static evaluation of a position in centipawns, tapered between a middlegame and an endgame score by how much
+ * material is left.
+ * <p>
+ * Material and piece-square values come from the running sums the board keeps as pieces move, so they cost nothing
+ * here. Mobility, pawn structure and king safety depend on how pieces stand relative to each other and are worked
+ * out from the bitboards on each call.
+ */
+public final class Evaluation {
+
+    private static final ChessGame.TeamColor WHITE = ChessGame.TeamColor.WHITE;
+    private static final ChessGame.TeamColor BLACK = ChessGame.TeamColor.BLACK;
+    private static final ChessPiece.PieceType[] MOBILE_TYPES = {ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK};
+
+    // Per square a piece can move to that no enemy pawn guards, indexed by piece type ordinal
+    private static final int[] MOBILITY_MIDDLEGAME = {0, 1, 5, 4, 2, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 2, 5, 4, 4, 0};
+    // Squares an average piece of each type reaches, so mobility scores about 0 for a typical position
+    private static final int[] MOBILITY_BASE = {0, 14, 7, 4, 7, 0};
+
+    private static final int DOUBLED_MIDDLEGAME = 10;
+    private static final int DOUBLED_ENDGAME = 20;
+    private static final int ISOLATED_MIDDLEGAME = 10;
+    private static final int ISOLATED_ENDGAME = 15;
+    // Passed pawn bonus by how many rows the pawn has advanced
+    private static final int[] PASSED_MIDDLEGAME = {0, 0, 5, 10, 20, 35, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 15, 30, 55, 90, 140, 0};
+
+    private static final int SHIELD_PAWN = 12;
+    // Weight of each attack on the squares around a king, indexed by piece type ordinal
+    private static final int[] KING_ATTACK_WEIGHTS = {0, 5, 2, 2, 3, 0};
+    private static final int MAX_KING_DANGER = 500;
+
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // Squares ahead of a pawn on its own and neighboring files, which must hold no enemy pawn for it to be passed
+    private static final long[][] PASSED_SPANS = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = Bitboards.FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            long span = FILES[square & 7] | ADJACENT_FILES[square & 7];
+            int row = square >>> 3;
+            PASSED_SPANS[WHITE.ordinal()][square] = (row == 7) ? 0L : span & (-1L << ((row + 1) * 8));
+            PASSED_SPANS[BLACK.ordinal()][square] = span & ((1L << (row * 8)) - 1);
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    /**
+     * @return the score of the position for the team whose turn it is
+     */
+    public static int evaluate(ChessGame game) {
+        return evaluate(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * @return the score of the board for the given team, positive when it stands better
+     */
+    public static int evaluate(ChessBoard board, ChessGame.TeamColor side) {
+        int middlegame = board.getMiddlegameScore();
+        int endgame = board.getEndgameScore();
+
+        long whitePawns = board.getBitboard(WHITE, ChessPiece.PieceType.PAWN);
+        long blackPawns = board.getBitboard(BLACK, ChessPiece.PieceType.PAWN);
+        long whitePawnAttacks = ((whitePawns << 7) & ~Bitboards.FILE_H) | ((whitePawns << 9) & ~Bitboards.FILE_A);
+        long blackPawnAttacks = ((blackPawns >>> 9) & ~Bitboards.FILE_H) | ((blackPawns >>> 7) & ~Bitboards.FILE_A);
+
+        int whitePieces = pieceTerms(board, WHITE, blackPawnAttacks);
+        int blackPieces = pieceTerms(board, BLACK, whitePawnAttacks);
+        int whitePawnTerms = pawnTerms(WHITE, whitePawns, blackPawns);
+        int blackPawnTerms = pawnTerms(BLACK, blackPawns, whitePawns);
+        middlegame += middlegame(whitePieces) - middlegame(blackPieces) + middlegame(whitePawnTerms)
+                - middlegame(blackPawnTerms);
+        endgame += endgame(whitePieces) - endgame(blackPieces) + endgame(whitePawnTerms) - endgame(blackPawnTerms);
+        // A king only needs shelter while the queens and rooks that could attack it are around
+        middlegame += kingShelter(board, WHITE, whitePawns) - kingShelter(board, BLACK, blackPawns);
+
+        int score = PieceSquareTables.taper(middlegame, endgame, board.getPhase());
+        return (side == WHITE) ? score : -score;
+    }
+
+    /**
+     * Mobility of one team's pieces, plus the danger they put the enemy king in
+     *
+     * @return the middlegame and endgame terms packed by {@link #pack}
+     */
+    private static int pieceTerms(ChessBoard board, ChessGame.TeamColor color, long enemyPawnAttacks) {
+        ChessGame.TeamColor enemy = (color == WHITE) ? BLACK : WHITE;
+        long occupied = board.getOccupied();
+        long available = ~board.getTeamBitboard(color) & ~enemyPawnAttacks;
+        long enemyKing = board.getBitboard(enemy, ChessPiece.PieceType.KING);
+        long kingZone = (enemyKing == 0) ? 0L
+                : AttackTables.kingAttacks(Long.numberOfTrailingZeros(enemyKing)) | enemyKing;
+
+        int middlegame = 0;
+        int endgame = 0;
+        int danger = 0;
+        for (ChessPiece.PieceType type : MOBILE_TYPES) {
+            int t = type.ordinal();
+            for (long bits = board.getBitboard(color, type); bits != 0; bits &= bits - 1) {
+                long attacks = AttackTables.attacks(type, color, Long.numberOfTrailingZeros(bits), occupied);
+                int moves = Long.bitCount(attacks & available) - MOBILITY_BASE[t];
+                middlegame += moves * MOBILITY_MIDDLEGAME[t];
+                endgame += moves * MOBILITY_ENDGAME[t];
+                danger += Long.bitCount(attacks & kingZone) * KING_ATTACK_WEIGHTS[t];
+            }
+        }
+        // Attacks add up faster than linearly, since a king can parry one attacker but rarely three
+        middlegame += Math.min(danger * danger, MAX_KING_DANGER);
+        return pack(middlegame, endgame);
+    }
+
+    /**
+     * Doubled, isolated and passed pawns of one team
+     *
+     * @return the middlegame and endgame terms packed by {@link #pack}
+     */
+    private static int pawnTerms(ChessGame.TeamColor color, long pawns, long enemyPawns) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(pawns & FILES[file]);
+            if (count == 0) {
+                continue;
+            }
+            if (count > 1) {
+                middlegame -= (count - 1) * DOUBLED_MIDDLEGAME;
+                endgame -= (count - 1) * DOUBLED_ENDGAME;
+            }
+            if ((pawns & ADJACENT_FILES[file]) == 0) {
+                middlegame -= count * ISOLATED_MIDDLEGAME;
+                endgame -= count * ISOLATED_ENDGAME;
+            }
+        }
+        for (long bits = pawns; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            if ((PASSED_SPANS[color.ordinal()][square] & enemyPawns) == 0) {
+                int advanced = (color == WHITE) ? square >>> 3 : 7 - (square >>> 3);
+                middlegame += PASSED_MIDDLEGAME[advanced];
+                endgame += PASSED_ENDGAME[advanced];
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    // Own pawns on the two rows in front of the king and the files beside it
+    private static int kingShelter(ChessBoard board, ChessGame.TeamColor color, long pawns) {
+        long king = board.getBitboard(color, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            return 0;
+        }
+        long ahead = (color == WHITE) ? (king << 8) | (king << 16) : (king >>> 8) | (king >>> 16);
+        long shield = ahead | ((ahead << 1) & ~Bitboards.FILE_A) | ((ahead >>> 1) & ~Bitboards.FILE_H);
+        return Long.bitCount(pawns & shield) * SHIELD_PAWN;
+    }
+
+    // Two scores in one int, so a helper can return both without allocating
+    private static int pack(int middlegame, int endgame) {
+        return (endgame << 16) + middlegame;
+    }
+
+    private static int middlegame(int packed) {
+        return (short) packed;
+    }
+
+    private static int endgame(int packed) {
+        return (packed + 0x8000) >> 16;
+    }
+}
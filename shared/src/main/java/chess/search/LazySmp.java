@@ -0,0 +1,57 @@
+package chess.search;
+
+import chess.ChessGame;
+import chess.tablebase.Tablebases;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lazy SMP: helper threads search the same root as the main thread, each on its own copy of the game, and share
+ * only the transposition table. Helpers start at staggered depths so they run ahead of the main thread and fill
+ * the table with results it reaches soon after. The main thread's result is the answer; the helpers are stopped
+ * as soon as it finishes.
+ */
+final class LazySmp {
+
+    private LazySmp() {
+    }
+
+    static SearchResult search(ChessGame game, SearchLimits limits, TranspositionTable table, Tablebases tablebases) {
+        table.newSearch();
+        AtomicBoolean stop = new AtomicBoolean();
+        int helperCount = limits.threads() - 1;
+        // Helpers answer to the main thread, so only it keeps to the node limit
+        SearchLimits helperLimits = limits.withNodes(Long.MAX_VALUE);
+        Thread[] helpers = new Thread[helperCount];
+        SearchResult[] helperResults = new SearchResult[helperCount];
+        for (int i = 0; i < helperCount; i++) {
+            int helper = i;
+            Search search = new Search(Search.copy(game), table, tablebases, stop);
+            helpers[i] = new Thread(() -> helperResults[helper] = search.search(helperLimits, 2 + helper % 2),
+                    "search-helper-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        SearchResult result;
+        try {
+            result = new Search(Search.copy(game), table, tablebases, stop).search(limits, 1);
+        } finally {
+            stop.set(true);
+        }
+
+        long nodes = result.nodes();
+        for (int i = 0; i < helperCount; i++) {
+            try {
+                helpers[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (helperResults[i] != null) {
+                nodes += helperResults[i].nodes();
+            }
+        }
+        return new SearchResult(result.move(), result.score(), result.depth(), nodes, result.millis(), result.pv());
+    }
+}
@@ -0,0 +1,243 @@
+package chess.search;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.PackedMove;
+
+/**
+ * Hands out the moves of a position one at a time in the order most likely to cause an early beta cutoff: the hash
+ * move, captures that do not lose material by most valuable victim then least valuable attacker, the killer moves,
+ * the remaining quiet moves by their history score, and finally the captures that static exchange evaluation says
+ * lose material.
+ * <p>
+ * Each stage is generated only when the one before it runs out, so a cutoff on the hash move or a capture never pays
+ * for generating quiet moves. Within a stage the best remaining move is picked on each call rather than sorting the
+ * whole stage up front, since usually only the first few are ever asked for.
+ * <p>
+ * A Search keeps one picker per ply and reuses it, so picking moves allocates nothing.
+ */
+final class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int GENERATE_QUIETS = 5;
+    private static final int QUIETS = 6;
+    private static final int BAD_CAPTURES = 7;
+    private static final int DONE = 8;
+
+    // Capture ordering value of each piece type, indexed by ordinal: KING, QUEEN, BISHOP, KNIGHT, ROOK, PAWN
+    private static final int[] ORDER_VALUES = {6, 5, 3, 3, 4, 1};
+    // Losing captures score below every other capture, but above the moves already handed out
+    private static final int BAD_CAPTURE_SCORE = -1000;
+    // Quiet promotions are tried before any other quiet move
+    private static final int PROMOTION_SCORE = 1 << 30;
+
+    private final ChessGame game;
+    private final int[] history;
+    private final int[] moves = new int[PackedMove.MAX_MOVES];
+    private final int[] scores = new int[PackedMove.MAX_MOVES];
+    private final int[] scratch = new int[PackedMove.MAX_MOVES];
+
+    private int stage;
+    private boolean capturesOnly;
+    // Moves [index, end) of the current stage are still to be handed out
+    private int index;
+    private int end;
+    // Captures fill the start of the buffer and quiet moves follow them, so losing captures wait where they are
+    private int captureEnd;
+    private int badCaptureStart;
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+
+    /**
+     * @param history quiet move scores indexed by piece index * 64 + end square, shared with the search that
+     *                updates them
+     */
+    MovePicker(ChessGame game, int[] history) {
+        this.game = game;
+        this.history = history;
+    }
+
+    /**
+     * Starts picking the moves of the game's current position
+     *
+     * @param hashMove move to try first, or {@link PackedMove#NONE}; ignored if it is not legal here
+     * @param killer1  quiet move that caused a cutoff at this ply in a sibling position, or NONE
+     * @param killer2  older killer move, or NONE
+     */
+    void reset(int hashMove, int killer1, int killer2) {
+        this.hashMove = hashMove;
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+        stage = HASH;
+        capturesOnly = false;
+    }
+
+    /**
+     * Starts picking only the captures of the game's current position that do not lose material, for quiescence
+     * search
+     */
+    void resetCaptures() {
+        hashMove = PackedMove.NONE;
+        killer1 = PackedMove.NONE;
+        killer2 = PackedMove.NONE;
+        stage = GENERATE_CAPTURES;
+        capturesOnly = true;
+    }
+
+    /**
+     * @return the next move to search, or {@link PackedMove#NONE} once every legal move has been handed out
+     */
+    int next() {
+        while (true) {
+            switch (stage++) {
+                case HASH -> {
+                    if (hashMove != PackedMove.NONE && isLegal(hashMove)) {
+                        return hashMove;
+                    }
+                    hashMove = PackedMove.NONE;
+                }
+                case GENERATE_CAPTURES -> {
+                    captureEnd = game.validCaptures(moves, 0);
+                    index = 0;
+                    end = captureEnd;
+                    scoreCaptures();
+                }
+                case GOOD_CAPTURES -> {
+                    int move = pickBest();
+                    if (move != PackedMove.NONE) {
+                        if (scores[index - 1] > BAD_CAPTURE_SCORE / 2) {
+                            stage = GOOD_CAPTURES;
+                            return move;
+                        }
+                        // Every capture left loses material, so leave them all for the last stage
+                        index--;
+                    }
+                    badCaptureStart = index;
+                    if (capturesOnly) {
+                        stage = DONE;
+                    }
+                }
+                case FIRST_KILLER -> {
+                    if (isUsableKiller(killer1)) {
+                        return killer1;
+                    }
+                }
+                case SECOND_KILLER -> {
+                    if (isUsableKiller(killer2)) {
+                        return killer2;
+                    }
+                }
+                case GENERATE_QUIETS -> {
+                    index = captureEnd;
+                    end = game.validQuietMoves(moves, captureEnd);
+                    scoreQuiets();
+                }
+                case QUIETS -> {
+                    int move = pickBest();
+                    if (move != PackedMove.NONE) {
+                        stage = QUIETS;
+                        return move;
+                    }
+                    index = badCaptureStart;
+                    end = captureEnd;
+                }
+                case BAD_CAPTURES -> {
+                    int move = pickBest();
+                    if (move != PackedMove.NONE) {
+                        stage = BAD_CAPTURES;
+                        return move;
+                    }
+                }
+                default -> {
+                    stage = DONE;
+                    return PackedMove.NONE;
+                }
+            }
+        }
+    }
+
+    // Moves already handed out by an earlier stage are scored out of the way rather than removed
+    private void scoreCaptures() {
+        ChessBoard board = game.getBoard();
+        for (int i = 0; i < end; i++) {
+            int move = moves[i];
+            int victim = (PackedMove.flag(move) == PackedMove.EN_PASSANT) ? ORDER_VALUES[5]
+                    : ORDER_VALUES[board.pieceAt(PackedMove.to(move)) % 6];
+            int attacker = ORDER_VALUES[board.pieceAt(PackedMove.from(move)) % 6];
+            if (move == hashMove) {
+                scores[i] = Integer.MIN_VALUE;
+            } else if (attacker > victim && board.staticExchange(move) < 0) {
+                // Only a capture by a more valuable piece can lose material, so only those need the exchange worked out
+                scores[i] = BAD_CAPTURE_SCORE + victim * 8 - attacker;
+            } else {
+                scores[i] = victim * 8 - attacker;
+            }
+        }
+    }
+
+    private void scoreQuiets() {
+        ChessBoard board = game.getBoard();
+        for (int i = index; i < end; i++) {
+            int move = moves[i];
+            if (move == hashMove || move == killer1 || move == killer2) {
+                scores[i] = Integer.MIN_VALUE;
+            } else if (PackedMove.isPromotion(move)) {
+                // QUEEN has the lowest ordinal of the promotion pieces
+                scores[i] = PROMOTION_SCORE - PackedMove.promotion(move).ordinal();
+            } else {
+                scores[i] = history[board.pieceAt(PackedMove.from(move)) * 64 + PackedMove.to(move)];
+            }
+        }
+    }
+
+    // One step of a selection sort: swap the best remaining move to the front of what is left
+    private int pickBest() {
+        while (index < end) {
+            int best = index;
+            for (int i = index + 1; i < end; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            int move = moves[best];
+            int score = scores[best];
+            moves[best] = moves[index];
+            scores[best] = scores[index];
+            moves[index] = move;
+            scores[index] = score;
+            index++;
+            if (score != Integer.MIN_VALUE) {
+                return move;
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    private boolean isUsableKiller(int move) {
+        return move != PackedMove.NONE && move != hashMove
+                && game.getBoard().pieceAt(PackedMove.to(move)) == Bitboards.NO_PIECE
+                && PackedMove.flag(move) != PackedMove.EN_PASSANT && isLegal(move);
+    }
+
+    // Hash and killer moves come from other positions, so check them against the moves of the piece they move
+    private boolean isLegal(int move) {
+        int from = PackedMove.from(move);
+        int piece = game.getBoard().pieceAt(from);
+        if (piece == Bitboards.NO_PIECE || Bitboards.colorOf(piece) != game.getTeamTurn()) {
+            return false;
+        }
+        int legal = game.validMoves(from, scratch, 0);
+        for (int i = 0; i < legal; i++) {
+            if (scratch[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,452 @@
+package chess.search;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.ChessPiece;
+import chess.PackedMove;
+import chess.tablebase.Tablebase;
+import chess.tablebase.Tablebases;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Chooses a move with an iterative deepening negamax alpha-beta search. Each iteration after the first searches a
+ * narrow aspiration window around the previous score and only widens it when the score falls outside.
+ * <p>
+ * Results are kept in a {@link TranspositionTable}, which cuts off positions reached again by another move order and
+ * supplies the best move found for a position last time to search first. The rest of the moves come from a
+ * {@link MovePicker}, ordered by the killer moves and history scores this search gathers as it goes.
+ * <p>
+ * A Search owns all of its working memory apart from the table, which is safe to share, so separate searches can
+ * run on as many threads as there are games. A single Search is not thread safe, but {@link #bestMove} can spread
+ * one search over several threads (see {@link LazySmp}).
+ * <p>
+ * Given {@link Tablebases}, positions down to few enough pieces are looked up instead of searched, and a root
+ * position that is in a table is answered straight from it.
+ */
+public class Search {
+
+    public static final int MATE = 32_000;
+    static final int MAX_PLY = 128;
+    // Scores beyond this are mates, found within MAX_PLY plies
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+    static final int INFINITY = MATE + 1;
+
+    private static final int ASPIRATION_WINDOW = 50;
+    // Largest positional swing a capture is expected to add on top of the material it wins
+    private static final int DELTA_MARGIN = 200;
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+    // How often, in nodes, to look at the clock
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    // History scores are halved once any reaches this, so old cutoffs fade and nothing overflows
+    private static final int MAX_HISTORY = 1 << 20;
+    // Size of the table a search makes for itself when the caller does not hand it one
+    private static final int OWN_TABLE_MEGABYTES = 16;
+
+    private final ChessGame game;
+    private final TranspositionTable table;
+    // Null when searching without tablebases
+    private final Tablebases tablebases;
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    // Two quiet moves per ply that last caused a cutoff, tried early in sibling positions
+    private final int[][] killers = new int[MAX_PLY][2];
+    // How often each quiet move has caused a cutoff, weighted by depth, indexed by piece index * 64 + end square
+    private final int[] history = new int[12 * 64];
+    // Triangular principal variation table, the best line from each ply
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean stopped;
+    // Set by another thread to stop this search early
+    private final AtomicBoolean stopSignal;
+    // Best move of the last finished iteration, searched first in the next one
+    private int rootMove;
+
+    /**
+     * Makes a search with a small table of its own, so it neither sees nor ages out the results of other searches
+     *
+     * @param game the game to search, which the search plays moves on and takes them back again
+     */
+    public Search(ChessGame game) {
+        this(game, new TranspositionTable(OWN_TABLE_MEGABYTES));
+    }
+
+    public Search(ChessGame game, TranspositionTable table) {
+        this(game, table, null);
+    }
+
+    /**
+     * @param tablebases tables to look endgames up in, or null to search them like any other position
+     */
+    public Search(ChessGame game, TranspositionTable table, Tablebases tablebases) {
+        this(game, table, tablebases, new AtomicBoolean());
+    }
+
+    Search(ChessGame game, TranspositionTable table, Tablebases tablebases, AtomicBoolean stopSignal) {
+        this.game = game;
+        this.table = table;
+        this.tablebases = tablebases;
+        this.stopSignal = stopSignal;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(game, history);
+        }
+    }
+
+    /**
+     * Finds the best move for the team whose turn it is, without changing the given game. The search gets a small
+     * table of its own; pass a table to reuse results across searches.
+     */
+    public static SearchResult bestMove(ChessGame game, SearchLimits limits) {
+        return bestMove(game, limits, new TranspositionTable(OWN_TABLE_MEGABYTES));
+    }
+
+    public static SearchResult bestMove(ChessGame game, SearchLimits limits, TranspositionTable table) {
+        return bestMove(game, limits, table, null);
+    }
+
+    public static SearchResult bestMove(ChessGame game, SearchLimits limits, TranspositionTable table,
+                                        Tablebases tablebases) {
+        if (limits.threads() > 1) {
+            return LazySmp.search(game, limits, table, tablebases);
+        }
+        return new Search(copy(game), table, tablebases).search(limits);
+    }
+
+    // Searching a copy leaves the caller free to read the game while the search runs
+    static ChessGame copy(ChessGame game) {
+        return ChessGameCodec.decode(ChessGameCodec.encode(game));
+    }
+
+    /**
+     * Searches on the calling thread, whatever the thread count in the limits
+     */
+    public SearchResult search(SearchLimits limits) {
+        table.newSearch();
+        return search(limits, 1);
+    }
+
+    // Iterative deepening from startDepth, so helper threads can work ahead of the main one
+    SearchResult search(SearchLimits limits, int startDepth) {
+        long start = System.nanoTime();
+        nodes = 0;
+        nodeLimit = limits.nodes();
+        deadline = (limits.millis() >= Long.MAX_VALUE / 1_000_000) ? Long.MAX_VALUE
+                : start + limits.millis() * 1_000_000;
+        stopped = false;
+        rootMove = PackedMove.NONE;
+        if (tablebases != null) {
+            SearchResult known = tablebaseResult(start);
+            if (known != null) {
+                return known;
+            }
+        }
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, PackedMove.NONE);
+        }
+        ageHistory();
+
+        int bestMove = PackedMove.NONE;
+        int bestScore = 0;
+        int[] bestLine = new int[0];
+        int completedDepth = 0;
+        for (int depth = startDepth; depth <= limits.depth(); depth++) {
+            int score = aspirationSearch(depth, bestScore);
+            if (stopped) {
+                break;
+            }
+            bestScore = score;
+            bestLine = Arrays.copyOf(pv[0], pvLength[0]);
+            bestMove = (bestLine.length > 0) ? bestLine[0] : PackedMove.NONE;
+            rootMove = bestMove;
+            completedDepth = depth;
+            // Nothing more to learn once there are no moves or a forced mate has been found
+            if (bestMove == PackedMove.NONE || Math.abs(score) >= MATE_BOUND) {
+                break;
+            }
+        }
+
+        // Even a first iteration cut short should still give a legal move
+        if (completedDepth == 0) {
+            int[] moves = new int[PackedMove.MAX_MOVES];
+            if (game.validMoves(moves) > 0) {
+                bestMove = moves[0];
+                bestLine = new int[]{bestMove};
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, (System.nanoTime() - start) / 1_000_000,
+                bestLine);
+    }
+
+    // Follows the table's best moves to mate or as far as the search could see, or returns null if it has no answer
+    private SearchResult tablebaseResult(long start) {
+        Optional<Tablebase.Result> known = tablebases.probe(game);
+        int move = tablebases.bestMove(game);
+        if (known.isEmpty() || move == PackedMove.NONE) {
+            return null;
+        }
+        int[] line = new int[MAX_PLY];
+        int length = 0;
+        // A drawn line never ends, so only its first move is given
+        int maxLength = (known.get().outcome() == Tablebase.Outcome.DRAW) ? 1 : MAX_PLY;
+        while (move != PackedMove.NONE && length < maxLength) {
+            line[length++] = move;
+            game.doMove(move);
+            move = tablebases.bestMove(game);
+        }
+        for (int i = 0; i < length; i++) {
+            game.undoMove();
+        }
+        return new SearchResult(line[0], tablebaseScore(known.get(), 0), length, 0,
+                (System.nanoTime() - start) / 1_000_000, Arrays.copyOf(line, length));
+    }
+
+    // Scored like a mate the search found; mates further off than MAX_PLY come out just short of the mate scores
+    private static int tablebaseScore(Tablebase.Result result, int ply) {
+        return switch (result.outcome()) {
+            case WIN -> MATE - ply - result.plies();
+            case LOSS -> -MATE + ply + result.plies();
+            case DRAW -> 0;
+        };
+    }
+
+    private int aspirationSearch(int depth, int previousScore) {
+        if (depth < 4 || Math.abs(previousScore) >= MATE_BOUND) {
+            return negamax(depth, 0, -INFINITY, INFINITY);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = Math.max(previousScore - delta, -INFINITY);
+        int beta = Math.min(previousScore + delta, INFINITY);
+        while (true) {
+            int score = negamax(depth, 0, alpha, beta);
+            if (stopped) {
+                return score;
+            }
+            if (score <= alpha) {
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta) {
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+            delta *= 2;
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if (depth == 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (ply == MAX_PLY - 1) {
+            return Evaluation.evaluate(game);
+        }
+        // A position seen before along the line can be repeated forever, so score it as the draw it leads to
+        if (ply > 0 && (game.isFiftyMoveRule() || game.repetitionCount() > 0)) {
+            return 0;
+        }
+        if (tablebases != null && ply > 0
+                && Long.bitCount(game.getBoard().getOccupied()) <= tablebases.maxPieces()) {
+            Optional<Tablebase.Result> known = tablebases.probe(game);
+            if (known.isPresent()) {
+                return tablebaseScore(known.get(), ply);
+            }
+        }
+
+        long key = game.getZobristKey();
+        long entry = table.probe(key);
+        int hashMove = PackedMove.NONE;
+        if (entry != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        // The picker checks the hash move is legal, so a move from a colliding key is never played
+        MovePicker picker = pickers[ply];
+        picker.reset((ply == 0 && rootMove != PackedMove.NONE) ? rootMove : hashMove, killers[ply][0],
+                killers[ply][1]);
+
+        int originalAlpha = alpha;
+        int bestMove = PackedMove.NONE;
+        int best = -INFINITY;
+        int played = 0;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            played++;
+            boolean quiet = isQuiet(move);
+            game.doMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            game.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            rememberCutoff(move, ply, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (played == 0) {
+            // Checkmate is worse the sooner it comes, stalemate is a draw
+            return game.isInCheck(game.getTeamTurn()) ? -MATE + ply : 0;
+        }
+
+        int bound = (best >= beta) ? TranspositionTable.LOWER_BOUND
+                : (best > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Searches captures until the position is quiet, so the evaluation is never taken halfway through an exchange.
+     * The side to move may stand pat on the evaluation instead of capturing, captures that lose material are never
+     * tried, and neither are captures that could not bring the score up to alpha even with a margin to spare.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (ply == MAX_PLY - 1) {
+            return Evaluation.evaluate(game);
+        }
+
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        MovePicker picker = pickers[ply];
+        int standPat = -INFINITY;
+        if (inCheck) {
+            // Standing pat is no option in check, and every evasion must be tried or a mate would look quiet
+            picker.reset(PackedMove.NONE, PackedMove.NONE, PackedMove.NONE);
+        } else {
+            standPat = Evaluation.evaluate(game);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            picker.resetCaptures();
+        }
+
+        int best = standPat;
+        int played = 0;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            played++;
+            if (!inCheck && standPat + captureValue(move) + DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            game.doMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (inCheck && played == 0) {
+            return -MATE + ply;
+        }
+        return best;
+    }
+
+    // Material a capture wins outright, before any recapture
+    private int captureValue(int move) {
+        int value = (PackedMove.flag(move) == PackedMove.EN_PASSANT) ? ChessBoard.exchangeValue(PAWN)
+                : ChessBoard.exchangeValue(game.getBoard().pieceAt(PackedMove.to(move)));
+        if (PackedMove.isPromotion(move)) {
+            value += ChessBoard.exchangeValue(PackedMove.promotion(move).ordinal()) - ChessBoard.exchangeValue(PAWN);
+        }
+        return value;
+    }
+
+    /**
+     * Counts a node and checks the node, time and stop limits
+     *
+     * @return true if the search has to stop
+     */
+    private boolean countNode() {
+        if (++nodes >= nodeLimit || ((nodes & (TIME_CHECK_INTERVAL - 1)) == 0
+                && (System.nanoTime() > deadline || stopSignal.get()))) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    // Mate scores are stored as distance from the stored position, so they stay right wherever it is reached
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        return (score <= -MATE_BOUND) ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        return (score <= -MATE_BOUND) ? score + ply : score;
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        for (int next = ply + 1; next < pvLength[ply + 1]; next++) {
+            pv[ply][next] = pv[ply + 1][next];
+        }
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    // Called before the move is played, while its end square still shows whether it captures
+    private boolean isQuiet(int move) {
+        return game.getBoard().pieceAt(PackedMove.to(move)) == Bitboards.NO_PIECE
+                && PackedMove.flag(move) != PackedMove.EN_PASSANT;
+    }
+
+    private void rememberCutoff(int move, int ply, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = game.getBoard().pieceAt(PackedMove.from(move)) * 64 + PackedMove.to(move);
+        history[index] += depth * depth;
+        if (history[index] >= MAX_HISTORY) {
+            ageHistory();
+        }
+    }
+
+    private void ageHistory() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+}
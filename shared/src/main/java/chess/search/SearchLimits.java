@@ -0,0 +1,57 @@
+package chess.search;
+
+/**
+ * How far a search may go. The search stops at whichever limit it reaches first; the node and time limits are hard,
+ * so it may stop in the middle of an iteration and fall back on the last one it finished.
+ *
+ * @param depth   deepest iteration to search, in plies
+ * @param nodes   most nodes to visit, counted on the main search thread
+ * @param millis  most wall clock time to take, in milliseconds
+ * @param threads number of threads to search with; one thread searches deterministically, giving the same result
+ *                every time for the same game and the same starting transposition table
+ */
+public record SearchLimits(int depth, long nodes, long millis, int threads) {
+
+    public static final int MAX_DEPTH = 64;
+    public static final int MAX_THREADS = 256;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Search depth must be between 1 and " + MAX_DEPTH);
+        }
+        if (nodes < 1 || millis < 1) {
+            throw new IllegalArgumentException("Search node and time limits must be positive");
+        }
+        if (threads < 1 || threads > MAX_THREADS) {
+            throw new IllegalArgumentException("Search threads must be between 1 and " + MAX_THREADS);
+        }
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE, 1);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, Long.MAX_VALUE, 1);
+    }
+
+    public static SearchLimits millis(long millis) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, millis, 1);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, nodes, millis, threads);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, nodes, millis, threads);
+    }
+
+    public SearchLimits withMillis(long millis) {
+        return new SearchLimits(depth, nodes, millis, threads);
+    }
+
+    public SearchLimits withThreads(int threads) {
+        return new SearchLimits(depth, nodes, millis, threads);
+    }
+}
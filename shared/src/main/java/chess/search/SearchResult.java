@@ -0,0 +1,49 @@
+package chess.search;
+
+import chess.ChessMove;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a search
+ *
+ * @param move  the best move found as a packed move, or {@link PackedMove#NONE} if the side to move has no moves
+ * @param score the score of the best move in centipawns for the side to move, or a mate score (see {@link #isMate})
+ * @param depth the deepest iteration that finished
+ * @param nodes number of nodes visited
+ * @param pv    the principal variation, the best line of play starting with move
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long millis, int[] pv) {
+
+    /**
+     * @return the best move, or null if the side to move has no moves
+     */
+    public ChessMove bestMove() {
+        return move == PackedMove.NONE ? null : PackedMove.toChessMove(move);
+    }
+
+    public List<ChessMove> principalVariation() {
+        List<ChessMove> line = new ArrayList<>(pv.length);
+        for (int m : pv) {
+            line.add(PackedMove.toChessMove(m));
+        }
+        return line;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    /**
+     * @return the number of moves until mate, negative if the side to move is getting mated, or 0 if there is no mate
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return (score > 0) ? (plies + 1) / 2 : -(plies + 1) / 2;
+    }
+}
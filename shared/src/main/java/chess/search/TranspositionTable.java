@@ -0,0 +1,145 @@
+package chess.search;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by the Zobrist key of a position, shared by any number of search
+ * threads without locks.
+ * <p>
+ * Each entry is two longs: the key XORed with the data, and the data. A reader only accepts an entry whose two words
+ * XOR back to the key it is looking for, so an entry half written by another thread, or belonging to another
+ * position, reads as a miss instead of as wrong data. A slot keeps the deeper of two results for the same
+ * generation, so shallow results near the leaves do not push out expensive ones; results from older searches are
+ * always replaced.
+ */
+public final class TranspositionTable {
+
+    public static final int DEFAULT_MEGABYTES = 64;
+
+    public static final int UPPER_BOUND = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int EXACT = 3;
+
+    /**
+     * Returned by {@link #probe} when there is no entry for the key
+     */
+    public static final long MISS = 0L;
+
+    private static final int SCORE_SHIFT = 17;
+    private static final int DEPTH_SHIFT = 33;
+    private static final int BOUND_SHIFT = 40;
+    private static final int GENERATION_SHIFT = 42;
+
+    private static TranspositionTable shared;
+
+    private final long[] table;
+    private final int mask;
+    private volatile int generation;
+
+    /**
+     * @param megabytes memory budget, rounded down to the largest power of two number of entries that fits
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1 || megabytes > 16384) {
+            throw new IllegalArgumentException("Transposition table size must be between 1 and 16384 MB");
+        }
+        long entries = Long.highestOneBit(megabytes * 1024L * 1024L / 16);
+        // An array can hold at most 2^30 entries of two longs
+        entries = Math.min(entries, 1L << 30);
+        table = new long[(int) (entries * 2)];
+        mask = (int) entries - 1;
+    }
+
+    /**
+     * A process-wide table for callers that choose to share one. Searches only use it when handed it, since every
+     * search ages out the entries of the ones before it.
+     *
+     * @return the same table on every call, created on first use
+     */
+    public static synchronized TranspositionTable shared() {
+        if (shared == null) {
+            shared = new TranspositionTable(DEFAULT_MEGABYTES);
+        }
+        return shared;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Marks the start of a new search, so the entries of earlier searches give way to new ones
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+
+    /**
+     * @return the entry data for the key, or {@link #MISS}; read it with {@link #move}, {@link #score},
+     * {@link #depth} and {@link #bound}
+     */
+    public long probe(long key) {
+        int index = ((int) key & mask) << 1;
+        long data = table[index + 1];
+        return ((table[index] ^ data) == key) ? data : MISS;
+    }
+
+    /**
+     * @param move  best or refuting packed move, or 0 if there is none
+     * @param score score relative to the stored position (mate scores counted from it, not from the root)
+     * @param depth remaining depth the score was searched to
+     * @param bound {@link #EXACT}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = ((int) key & mask) << 1;
+        long oldData = table[index + 1];
+        boolean sameKey = (table[index] ^ oldData) == key;
+        int oldGeneration = (int) (oldData >>> GENERATION_SHIFT) & 0xFF;
+        if (!sameKey && oldData != MISS && oldGeneration == generation && depth(oldData) > depth) {
+            return;
+        }
+        // Keep the old best move when a search of the same position did not find one
+        if (move == 0 && sameKey) {
+            move = move(oldData);
+        }
+        long data = move | ((long) (score & 0xFFFF) << SCORE_SHIFT) | ((long) depth << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT) | ((long) generation << GENERATION_SHIFT);
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    public static int move(long data) {
+        return (int) data & 0x1FFFF;
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0x7F;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * @return roughly how full the table is with entries from the current search, in parts per thousand
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, capacity());
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * 2 + 1];
+            if (data != MISS && ((data >>> GENERATION_SHIFT) & 0xFF) == generation) {
+                used++;
+            }
+        }
+        return used * 1000 / sample;
+    }
+}
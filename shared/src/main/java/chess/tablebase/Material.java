@@ -0,0 +1,217 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The set of pieces a tablebase covers, written as the WHITE pieces then the BLACK ones, each starting with the king
+ * and in the order K, Q, R, B, N, P: {@code KQK} is king and queen against a lone king and {@code KRKP} king and rook
+ * against king and pawn.
+ * <p>
+ * Only the stronger side is ever WHITE in a table's name; positions with the colors the other way round are looked up
+ * in the same table with the board flipped (see {@link #isFlipped}).
+ */
+public final class Material {
+
+    private static final String LETTERS = "KQRBNP";
+    private static final ChessPiece.PieceType[] TYPES = {ChessPiece.PieceType.KING, ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT,
+            ChessPiece.PieceType.PAWN};
+    private static final int[] VALUES = {0, 9, 5, 3, 3, 1};
+
+    private final String name;
+    // Piece index of each piece in the table, WHITE king first and BLACK king at blackKingSlot
+    private final int[] pieces;
+    private final int blackKingSlot;
+    // How many WHITE pieces of each type the table has, indexed by type ordinal
+    private final int[] whiteCounts = new int[TYPES.length];
+
+    private Material(String white, String black) {
+        this.name = white + black;
+        this.blackKingSlot = white.length();
+        this.pieces = new int[name.length()];
+        for (int i = 0; i < name.length(); i++) {
+            ChessGame.TeamColor color = (i < blackKingSlot) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+            pieces[i] = Bitboards.pieceIndex(color, TYPES[LETTERS.indexOf(name.charAt(i))]);
+            if (i < blackKingSlot) {
+                whiteCounts[pieces[i]]++;
+            }
+        }
+    }
+
+    /**
+     * @param name pieces such as {@code KQK} or {@code KRKP}, in any order within each side and with either side
+     *             stronger
+     * @return the material, with the stronger side as WHITE
+     * @throws IllegalArgumentException if the name is not two sides each with one king
+     */
+    public static Material of(String name) {
+        String upper = name.toUpperCase();
+        int split = upper.indexOf('K', 1);
+        if (!upper.startsWith("K") || split < 0 || upper.indexOf('K', split + 1) >= 0
+                || !upper.chars().allMatch(c -> LETTERS.indexOf(c) >= 0)) {
+            throw new IllegalArgumentException("Bad material, expected something like KQK or KRKP: " + name);
+        }
+        return normalized(sort(upper.substring(0, split)), sort(upper.substring(split)));
+    }
+
+    /**
+     * @return the material on the board, with the stronger side as WHITE
+     */
+    public static Material of(ChessBoard board) {
+        return normalized(side(board, ChessGame.TeamColor.WHITE), side(board, ChessGame.TeamColor.BLACK));
+    }
+
+    /**
+     * @return a number that is the same for two boards exactly when they have the same pieces of the same colors,
+     * cheaper to work out than {@link #of(ChessBoard)}
+     */
+    public static long signature(ChessBoard board) {
+        long signature = 0L;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : TYPES) {
+                signature = (signature << 4) | Long.bitCount(board.getBitboard(color, type));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return whether the board's pieces have the colors the other way round from this table, so WHITE and BLACK must
+     * be swapped (and the board flipped top to bottom) to look the position up
+     */
+    public boolean isFlipped(ChessBoard board) {
+        for (ChessPiece.PieceType type : TYPES) {
+            if (Long.bitCount(board.getBitboard(ChessGame.TeamColor.WHITE, type)) != whiteCounts[type.ordinal()]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int size() {
+        return pieces.length;
+    }
+
+    /**
+     * @return the piece index of the piece in a slot, WHITE pieces first
+     */
+    public int piece(int slot) {
+        return pieces[slot];
+    }
+
+    public int blackKingSlot() {
+        return blackKingSlot;
+    }
+
+    public boolean hasPawns() {
+        return name.indexOf('P') >= 0;
+    }
+
+    /**
+     * @return the materials reached from this one by a capture, a promotion or both at once, with no repeats
+     */
+    public List<Material> children() {
+        String white = name.substring(0, blackKingSlot);
+        String black = name.substring(blackKingSlot);
+        List<Material> children = new ArrayList<>();
+        for (String whiteAfter : promotions(white)) {
+            for (int i = 1; i < black.length(); i++) {
+                addChild(children, whiteAfter, remove(black, i));
+            }
+            addChild(children, whiteAfter, black);
+        }
+        for (String blackAfter : promotions(black)) {
+            for (int i = 1; i < white.length(); i++) {
+                addChild(children, remove(white, i), blackAfter);
+            }
+            addChild(children, white, blackAfter);
+        }
+        children.remove(this);
+        return children;
+    }
+
+    // The side as it is and, if it has a pawn, with each promotion of it
+    private static List<String> promotions(String side) {
+        List<String> sides = new ArrayList<>();
+        sides.add(side);
+        if (side.indexOf('P') >= 0) {
+            for (char promotion : "QRBN".toCharArray()) {
+                sides.add(sort(side.replaceFirst("P", String.valueOf(promotion))));
+            }
+        }
+        return sides;
+    }
+
+    private static void addChild(List<Material> children, String white, String black) {
+        Material child = normalized(white, black);
+        if (!children.contains(child)) {
+            children.add(child);
+        }
+    }
+
+    private static Material normalized(String white, String black) {
+        return (compare(white, black) >= 0) ? new Material(white, black) : new Material(black, white);
+    }
+
+    // Stronger side by material, then by more pieces, then by name so equal sides always sort the same way
+    private static int compare(String first, String second) {
+        int difference = value(first) - value(second);
+        if (difference == 0) {
+            difference = first.length() - second.length();
+        }
+        return (difference != 0) ? difference : second.compareTo(first);
+    }
+
+    private static int value(String side) {
+        int value = 0;
+        for (char c : side.toCharArray()) {
+            value += VALUES[LETTERS.indexOf(c)];
+        }
+        return value;
+    }
+
+    private static String side(ChessBoard board, ChessGame.TeamColor color) {
+        StringBuilder side = new StringBuilder();
+        for (int i = 0; i < TYPES.length; i++) {
+            side.append(String.valueOf(LETTERS.charAt(i)).repeat(Long.bitCount(board.getBitboard(color, TYPES[i]))));
+        }
+        return side.toString();
+    }
+
+    private static String sort(String side) {
+        StringBuilder sorted = new StringBuilder();
+        for (char letter : LETTERS.toCharArray()) {
+            side.chars().filter(c -> c == letter).forEach(c -> sorted.append(letter));
+        }
+        return sorted.toString();
+    }
+
+    private static String remove(String side, int index) {
+        return side.substring(0, index) + side.substring(index + 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Material other && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
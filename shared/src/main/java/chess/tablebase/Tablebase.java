@@ -0,0 +1,254 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A distance to mate table for one {@link Material}, giving the result of every position with those pieces under
+ * perfect play, built by {@link TablebaseGenerator}.
+ * <p>
+ * Each position takes one byte: 0 for a draw, otherwise one more than the number of plies to mate, which is odd when
+ * the side to move wins and even when it loses. Positions are indexed by the square of every piece and the side to
+ * move, with the board first turned or mirrored so the WHITE king stands in a fixed part of it: the a1-d1-d4 triangle
+ * without pawns, or files a-d with them. That makes a 3 piece table 80 KB and a 4 piece one at most 16 MB.
+ * <p>
+ * A table read with {@link #open} is memory-mapped, so it takes no heap space and probes are plain absolute reads that
+ * any number of threads can make at once.
+ */
+public final class Tablebase {
+
+    static final int MAGIC = 0x43544231;
+    static final int DRAW = 0;
+
+    // Index of each square for the WHITE king, or -1 if the king is never indexed there
+    private static final int[] TRIANGLE_INDEX = new int[64];
+    private static final int[] TRIANGLE_SQUARES = new int[10];
+    private static final int[] HALF_BOARD_INDEX = new int[64];
+    private static final int[] HALF_BOARD_SQUARES = new int[32];
+
+    static {
+        int triangle = 0;
+        int half = 0;
+        for (int square = 0; square < 64; square++) {
+            int row = square >>> 3;
+            int column = square & 7;
+            TRIANGLE_INDEX[square] = (column < 4 && row <= column) ? triangle : -1;
+            HALF_BOARD_INDEX[square] = (column < 4) ? half : -1;
+            if (TRIANGLE_INDEX[square] >= 0) {
+                TRIANGLE_SQUARES[triangle++] = square;
+            }
+            if (HALF_BOARD_INDEX[square] >= 0) {
+                HALF_BOARD_SQUARES[half++] = square;
+            }
+        }
+    }
+
+    private final Material material;
+    private final ByteBuffer values;
+
+    Tablebase(Material material, ByteBuffer values) {
+        this.material = material;
+        this.values = values;
+    }
+
+    /**
+     * Maps a table file read-only. The mapping stays valid after the file is closed, until the table is garbage
+     * collected.
+     *
+     * @throws IOException if the file cannot be read or is not a whole table
+     */
+    public static Tablebase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(5);
+            if (channel.read(header, 0) != header.capacity() || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a tablebase file: " + file);
+            }
+            ByteBuffer name = ByteBuffer.allocate(header.get(4));
+            channel.read(name, header.capacity());
+            Material material = Material.of(new String(name.array(), StandardCharsets.US_ASCII));
+            long offset = header.capacity() + name.capacity();
+            if (channel.size() - offset != size(material)) {
+                throw new IOException("Tablebase " + material + " has the wrong size: " + file);
+            }
+            return new Tablebase(material, channel.map(FileChannel.MapMode.READ_ONLY, offset, size(material)));
+        }
+    }
+
+    /**
+     * Writes the table in the format {@link #open} reads: a magic number, the material name and then the values
+     */
+    void write(Path file) throws IOException {
+        byte[] name = material.name().getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer header = ByteBuffer.allocate(5 + name.length).putInt(MAGIC).put((byte) name.length).put(name);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            header.flip();
+            ByteBuffer data = values.duplicate().clear();
+            while (header.hasRemaining() || data.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, data});
+            }
+        }
+    }
+
+    public Material material() {
+        return material;
+    }
+
+    public enum Outcome {
+        WIN, LOSS, DRAW
+    }
+
+    /**
+     * The value of a position under perfect play
+     *
+     * @param outcome the result for the side to move
+     * @param plies   the number of plies until mate, or 0 for a draw
+     */
+    public record Result(Outcome outcome, int plies) {
+
+        static Result of(int value) {
+            if (value == DRAW) {
+                return new Result(Outcome.DRAW, 0);
+            }
+            return new Result(isWin(value) ? Outcome.WIN : Outcome.LOSS, value - 1);
+        }
+    }
+
+    /**
+     * @param side the side to move
+     * @return the value of the position, which must not have castling rights or a possible En Passant capture, as
+     * neither is in the table
+     * @throws IllegalArgumentException if the board does not have this table's pieces
+     */
+    public Result probe(ChessBoard board, ChessGame.TeamColor side) {
+        int value = value(board, side);
+        if (value < 0) {
+            throw new IllegalArgumentException("Board does not have the pieces of tablebase " + material);
+        }
+        return Result.of(value);
+    }
+
+    /**
+     * @return the stored byte for the position, or -1 if the board does not have this table's pieces
+     */
+    int value(ChessBoard board, ChessGame.TeamColor side) {
+        int index = index(material, board, side);
+        return (index < 0) ? -1 : values.get(index) & 0xFF;
+    }
+
+    static boolean isWin(int value) {
+        return value != DRAW && (value & 1) == 0;
+    }
+
+    /**
+     * @return the number of positions in a table for the material
+     */
+    static int size(Material material) {
+        int size = 2 * (material.hasPawns() ? HALF_BOARD_SQUARES.length : TRIANGLE_SQUARES.length);
+        for (int slot = 1; slot < material.size(); slot++) {
+            size *= 64;
+        }
+        return size;
+    }
+
+    /**
+     * Finds where a position is kept. Of all the ways the board can be turned so the WHITE king is in the indexed
+     * part, the one giving the lowest index is used, so every position maps to exactly one index.
+     *
+     * @return the index, or -1 if the board does not have the material's pieces
+     */
+    static int index(Material material, ChessBoard board, ChessGame.TeamColor side) {
+        int count = material.size();
+        if (Long.bitCount(board.getOccupied()) != count) {
+            return -1;
+        }
+        boolean flipped = material.isFlipped(board);
+        int[] squares = new int[count];
+        long taken = 0L;
+        for (int slot = 0; slot < count; slot++) {
+            int piece = material.piece(slot);
+            ChessGame.TeamColor color = Bitboards.colorOf(piece);
+            if (flipped) {
+                color = (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            }
+            long bits = board.getBitboard(color, Bitboards.typeOf(piece)) & ~taken;
+            if (bits == 0) {
+                return -1;
+            }
+            int square = Long.numberOfTrailingZeros(bits);
+            taken |= Bitboards.bit(square);
+            squares[slot] = flipped ? square ^ 56 : square;
+        }
+        int sideIndex = (side == ChessGame.TeamColor.WHITE) != flipped ? 0 : 1;
+
+        boolean pawns = material.hasPawns();
+        int[] kingIndex = pawns ? HALF_BOARD_INDEX : TRIANGLE_INDEX;
+        int[] turned = new int[count];
+        int best = Integer.MAX_VALUE;
+        for (int symmetry = 0; symmetry < (pawns ? 2 : 8); symmetry++) {
+            int king = kingIndex[turn(squares[0], symmetry)];
+            if (king < 0) {
+                continue;
+            }
+            for (int slot = 1; slot < count; slot++) {
+                turned[slot] = turn(squares[slot], symmetry);
+                // Identical pieces are kept in square order, so swapping them gives the same index
+                for (int i = slot; i > 1 && material.piece(i) == material.piece(i - 1) && turned[i] < turned[i - 1];
+                     i--) {
+                    int swap = turned[i];
+                    turned[i] = turned[i - 1];
+                    turned[i - 1] = swap;
+                }
+            }
+            int index = 0;
+            for (int slot = count - 1; slot > 0; slot--) {
+                index = index * 64 + turned[slot];
+            }
+            best = Math.min(best, index * (pawns ? HALF_BOARD_SQUARES.length : TRIANGLE_SQUARES.length) + king);
+        }
+        return best * 2 + sideIndex;
+    }
+
+    /**
+     * Reverses {@link #index}, writing the square of each piece in material slot order
+     *
+     * @return the side to move
+     */
+    static ChessGame.TeamColor decode(Material material, int index, int[] squares) {
+        ChessGame.TeamColor side = ((index & 1) == 0) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        int rest = index >>> 1;
+        int[] kingSquares = material.hasPawns() ? HALF_BOARD_SQUARES : TRIANGLE_SQUARES;
+        squares[0] = kingSquares[rest % kingSquares.length];
+        rest /= kingSquares.length;
+        for (int slot = 1; slot < material.size(); slot++) {
+            squares[slot] = rest & 63;
+            rest >>>= 6;
+        }
+        return side;
+    }
+
+    /**
+     * Applies one of the eight symmetries of the board: bit 2 reflects it in the a1-h8 diagonal, then bit 0 mirrors
+     * the files and bit 1 the rows. Only the file mirror keeps pawns moving the right way.
+     */
+    private static int turn(int square, int symmetry) {
+        if ((symmetry & 4) != 0) {
+            square = ((square & 7) << 3) | (square >>> 3);
+        }
+        if ((symmetry & 1) != 0) {
+            square ^= 7;
+        }
+        if ((symmetry & 2) != 0) {
+            square ^= 56;
+        }
+        return square;
+    }
+}
@@ -0,0 +1,380 @@
+package chess.tablebase;
+
+import chess.AttackTables;
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.MovesCalculator;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds {@link Tablebase} files by retrograde analysis. Every position is first set up once to find the mates and the
+ * positions whose best line starts by capturing or promoting, which are looked up in the smaller tables those moves
+ * lead to. From then on, a position can only have been resolved at distance n if it is one move before a position
+ * resolved at distance n - 1, so each round takes back the last move of every position from the round before and
+ * checks only the positions it reaches.
+ * <p>
+ * The tables a material needs are generated first, or read if the directory already has them, and every table made
+ * is written to the directory as {@code <material>.tb}. Castling and En Passant are left out, and so is the fifty move
+ * rule.
+ * <p>
+ * Run it with the directory and the materials to build, for example {@code tablebases KQK KRK KPK KQKR}.
+ */
+public final class TablebaseGenerator {
+
+    // Stored values only go up to 255
+    private static final int MAX_PLIES = 254;
+
+    private final Path directory;
+    private final Map<Material, Tablebase> tables = new HashMap<>();
+
+    public TablebaseGenerator(Path directory) {
+        this.directory = directory;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TablebaseGenerator <directory> <material>...");
+            System.exit(1);
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]));
+        Files.createDirectories(generator.directory);
+        for (int i = 1; i < args.length; i++) {
+            long start = System.nanoTime();
+            Material material = Material.of(args[i]);
+            generator.generate(material);
+            System.out.printf("%s done in %d ms%n", material, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * @return the table for the material, read from the directory if it is there and generated and written there if
+     * not, along with any table it needs
+     */
+    public Tablebase generate(Material material) throws IOException {
+        Tablebase table = tables.get(material);
+        if (table != null) {
+            return table;
+        }
+        Path file = directory.resolve(material.name() + ".tb");
+        if (Files.exists(file)) {
+            table = Tablebase.open(file);
+        } else {
+            Map<Long, Tablebase> children = new HashMap<>();
+            for (Material child : material.children()) {
+                Tablebase childTable = generate(child);
+                children.put(signature(child, false), childTable);
+                children.put(signature(child, true), childTable);
+            }
+            table = new Tablebase(material, ByteBuffer.wrap(new Retrograde(material, children).run()));
+            table.write(file);
+        }
+        tables.put(material, table);
+        return table;
+    }
+
+    // The signature of a board with the material's pieces, the colors swapped if asked
+    private static long signature(Material material, boolean swapColors) {
+        ChessBoard board = new ChessBoard();
+        for (int slot = 0; slot < material.size(); slot++) {
+            int piece = material.piece(slot);
+            ChessGame.TeamColor color = Bitboards.colorOf(piece);
+            if (swapColors) {
+                color = opponent(color);
+            }
+            board.addPiece(Bitboards.position(slot), ChessPiece.of(color, Bitboards.typeOf(piece)));
+        }
+        return Material.signature(board);
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    /**
+     * The work of generating one table, with one board that positions are set up on and taken off again
+     */
+    private static final class Retrograde {
+
+        private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+        static {
+            for (int square = 0; square < 64; square++) {
+                POSITIONS[square] = Bitboards.position(square);
+            }
+        }
+
+        private final Material material;
+        private final Map<Long, Tablebase> children;
+        private final byte[] values;
+        // Positions that can never be resolved: impossible, not indexed this way round, or stalemate
+        private final BitSet settled;
+        private final BitSet checked;
+        private final ChessPiece[] pieces;
+        private final ChessBoard board = new ChessBoard();
+        private final int[] squares;
+        private final int[] moves = new int[PackedMove.MAX_MOVES];
+        // Positions found in the first pass to be resolved at a later distance, by the first move's result
+        private final IntList[] pending = new IntList[MAX_PLIES + 2];
+
+        Retrograde(Material material, Map<Long, Tablebase> children) {
+            this.material = material;
+            this.children = children;
+            int size = Tablebase.size(material);
+            this.values = new byte[size];
+            this.settled = new BitSet(size);
+            this.checked = new BitSet(size);
+            this.squares = new int[material.size()];
+            this.pieces = new ChessPiece[material.size()];
+            for (int slot = 0; slot < pieces.length; slot++) {
+                int piece = material.piece(slot);
+                pieces[slot] = ChessPiece.of(Bitboards.colorOf(piece), Bitboards.typeOf(piece));
+            }
+        }
+
+        byte[] run() {
+            IntList resolved = new IntList();
+            for (int index = 0; index < values.length; index++) {
+                ChessGame.TeamColor side = Tablebase.decode(material, index, squares);
+                if (!setUp(index, side)) {
+                    settled.set(index);
+                    continue;
+                }
+                firstPass(index, side, resolved);
+                takeDown();
+            }
+
+            for (int plies = 1; plies <= MAX_PLIES && (!resolved.isEmpty() || hasPending(plies)); plies++) {
+                IntList next = new IntList();
+                checked.clear();
+                if (pending[plies] != null) {
+                    for (int i = 0; i < pending[plies].size(); i++) {
+                        int index = pending[plies].get(i);
+                        ChessGame.TeamColor side = Tablebase.decode(material, index, squares);
+                        setUp(index, side);
+                        check(index, side, plies, next);
+                        takeDown();
+                    }
+                    pending[plies] = null;
+                }
+                for (int i = 0; i < resolved.size(); i++) {
+                    int index = resolved.get(i);
+                    ChessGame.TeamColor side = Tablebase.decode(material, index, squares);
+                    setUp(index, side);
+                    takeBack(opponent(side), plies, next);
+                    takeDown();
+                }
+                resolved = next;
+            }
+            return values;
+        }
+
+        /**
+         * Puts the pieces on the board at the squares just decoded
+         *
+         * @return false, with the board left empty, if the position is impossible or is kept at another index
+         */
+        private boolean setUp(int index, ChessGame.TeamColor side) {
+            long occupied = 0L;
+            for (int slot = 0; slot < squares.length; slot++) {
+                long bit = Bitboards.bit(squares[slot]);
+                boolean backRank = (bit & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0;
+                if ((occupied & bit) != 0 || (backRank && pieces[slot].getPieceType() == ChessPiece.PieceType.PAWN)) {
+                    return false;
+                }
+                occupied |= bit;
+            }
+            for (int slot = 0; slot < squares.length; slot++) {
+                board.addPiece(POSITIONS[squares[slot]], pieces[slot]);
+            }
+            if (Tablebase.index(material, board, side) != index || isInCheck(opponent(side))) {
+                takeDown();
+                return false;
+            }
+            return true;
+        }
+
+        private void takeDown() {
+            for (long bits = board.getOccupied(); bits != 0; bits &= bits - 1) {
+                board.addPiece(POSITIONS[Long.numberOfTrailingZeros(bits)], null);
+            }
+        }
+
+        private boolean isInCheck(ChessGame.TeamColor color) {
+            int king = Long.numberOfTrailingZeros(board.getBitboard(color, ChessPiece.PieceType.KING));
+            return board.isSquareAttacked(king, opponent(color));
+        }
+
+        // Finds mates and stalemates, and when the position can be resolved through a capture or promotion
+        private void firstPass(int index, ChessGame.TeamColor side, IntList mates) {
+            int count = MovesCalculator.generateLegalMoves(board, side, 0, -1, -1L, moves, 0);
+            if (count == 0) {
+                if (isInCheck(side)) {
+                    values[index] = 1;
+                    mates.add(index);
+                } else {
+                    settled.set(index);
+                }
+                return;
+            }
+            int shortestWin = Integer.MAX_VALUE;
+            int longestLoss = 0;
+            boolean allLosses = true;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                int captured = board.doMove(move);
+                int value = (captured != Bitboards.NO_PIECE || PackedMove.isPromotion(move))
+                        ? children.get(Material.signature(board)).value(board, opponent(side)) : Tablebase.DRAW;
+                board.undoMove(move, captured);
+                if (value == Tablebase.DRAW) {
+                    allLosses = false;
+                } else if (!Tablebase.isWin(value)) {
+                    shortestWin = Math.min(shortestWin, value);
+                } else {
+                    longestLoss = Math.max(longestLoss, value);
+                }
+            }
+            // A value is one more than the plies to mate after the move, so it is the plies to mate before it
+            if (shortestWin != Integer.MAX_VALUE) {
+                addPending(shortestWin, index);
+            } else if (allLosses) {
+                addPending(longestLoss, index);
+            }
+        }
+
+        /**
+         * Resolves a position at the given distance if its best move now leads to a position resolved one ply
+         * sooner, or puts it off to a later distance if only a capture or promotion is left to decide it
+         */
+        private void check(int index, ChessGame.TeamColor side, int plies, IntList resolved) {
+            if (values[index] != 0 || settled.get(index) || checked.get(index)) {
+                return;
+            }
+            checked.set(index);
+            int count = MovesCalculator.generateLegalMoves(board, side, 0, -1, -1L, moves, 0);
+            int shortestWin = Integer.MAX_VALUE;
+            int longestLoss = 0;
+            boolean allLosses = true;
+            for (int i = 0; i < count; i++) {
+                int move = moves[i];
+                int captured = board.doMove(move);
+                int value;
+                if (captured != Bitboards.NO_PIECE || PackedMove.isPromotion(move)) {
+                    value = children.get(Material.signature(board)).value(board, opponent(side));
+                } else {
+                    value = values[Tablebase.index(material, board, opponent(side))] & 0xFF;
+                }
+                board.undoMove(move, captured);
+                if (value == Tablebase.DRAW) {
+                    allLosses = false;
+                } else if (!Tablebase.isWin(value)) {
+                    shortestWin = Math.min(shortestWin, value);
+                } else {
+                    longestLoss = Math.max(longestLoss, value);
+                }
+            }
+            if (shortestWin == plies || (shortestWin == Integer.MAX_VALUE && allLosses && longestLoss == plies)) {
+                values[index] = (byte) (plies + 1);
+                resolved.add(index);
+            } else if (shortestWin == Integer.MAX_VALUE && allLosses && longestLoss > plies) {
+                addPending(longestLoss, index);
+            }
+        }
+
+        /**
+         * Takes back every move the mover could have just made, other than a capture or promotion, and checks the
+         * position before it
+         */
+        private void takeBack(ChessGame.TeamColor mover, int plies, IntList resolved) {
+            long occupied = board.getOccupied();
+            for (long bits = board.getTeamBitboard(mover); bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                ChessPiece.PieceType type = Bitboards.typeOf(board.pieceAt(square));
+                long origins = (type == ChessPiece.PieceType.PAWN) ? pawnOrigins(mover, square, occupied)
+                        : AttackTables.attacks(type, mover, square, occupied) & ~occupied;
+                for (; origins != 0; origins &= origins - 1) {
+                    int move = PackedMove.encode(square, Long.numberOfTrailingZeros(origins));
+                    board.doMove(move);
+                    if (!isInCheck(opponent(mover))) {
+                        check(Tablebase.index(material, board, mover), mover, plies, resolved);
+                    }
+                    board.undoMove(move, Bitboards.NO_PIECE);
+                }
+            }
+        }
+
+        private static long pawnOrigins(ChessGame.TeamColor color, int square, long occupied) {
+            boolean white = color == ChessGame.TeamColor.WHITE;
+            int one = white ? square - 8 : square + 8;
+            // No pawn starts a move from the first rank, and only a pawn on its fourth rank can have moved two
+            if (one < 8 || one >= 56 || (occupied & Bitboards.bit(one)) != 0) {
+                return 0L;
+            }
+            long origins = Bitboards.bit(one);
+            int fourthRank = white ? 3 : 4;
+            int two = white ? square - 16 : square + 16;
+            if ((square >>> 3) == fourthRank && (occupied & Bitboards.bit(two)) == 0) {
+                origins |= Bitboards.bit(two);
+            }
+            return origins;
+        }
+
+        private void addPending(int plies, int index) {
+            if (plies > MAX_PLIES) {
+                throw new IllegalStateException("Mate in " + material + " is too long to store: " + plies);
+            }
+            if (pending[plies] == null) {
+                pending[plies] = new IntList();
+            }
+            pending[plies].add(index);
+        }
+
+        private boolean hasPending(int from) {
+            for (int plies = from; plies < pending.length; plies++) {
+                if (pending[plies] != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A growable list of ints, to keep millions of position indexes without boxing them
+     */
+    private static final class IntList {
+
+        private int[] items = new int[64];
+        private int size;
+
+        void add(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The tables in a directory of {@code <material>.tb} files, for looking up games that are down to few enough pieces.
+ * Each table is memory-mapped the first time a position needs it, and one Tablebases can be shared by any number of
+ * threads.
+ */
+public final class Tablebases {
+
+    private final Path directory;
+    private final int maxPieces;
+    // Tables by Material#signature, empty for material with no table in the directory
+    private final ConcurrentHashMap<Long, Optional<Tablebase>> tables = new ConcurrentHashMap<>();
+
+    /**
+     * @throws IOException if the directory cannot be listed
+     */
+    public Tablebases(Path directory) throws IOException {
+        this.directory = directory;
+        try (var files = Files.list(directory)) {
+            this.maxPieces = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".tb"))
+                    .mapToInt(name -> name.length() - ".tb".length())
+                    .max().orElse(0);
+        }
+    }
+
+    /**
+     * @return the most pieces, kings included, that any table in the directory covers
+     */
+    public int maxPieces() {
+        return maxPieces;
+    }
+
+    /**
+     * Looks up the game's current position. Positions with castling rights or a possible En Passant capture are not
+     * in any table.
+     *
+     * @return the result for the side to move, or empty if there is no table for the position
+     * @throws UncheckedIOException if a table file cannot be read
+     */
+    public Optional<Tablebase.Result> probe(ChessGame game) {
+        if (!isCovered(game)) {
+            return Optional.empty();
+        }
+        return probe(game.getBoard(), game.getTeamTurn()).map(Tablebase.Result::of);
+    }
+
+    /**
+     * Finds the move that keeps the best result: the quickest mate when winning, the longest defence when losing and
+     * a move that holds the draw otherwise. The move is played on the game and taken back again to look up each
+     * reply, so the game must not be used by another thread meanwhile.
+     *
+     * @return the packed move, or {@link PackedMove#NONE} if the position is not in a table or has no legal moves
+     */
+    public int bestMove(ChessGame game) {
+        Optional<Tablebase.Result> result = probe(game);
+        if (result.isEmpty()) {
+            return PackedMove.NONE;
+        }
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        int count = game.validMoves(moves);
+        int best = PackedMove.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            game.doMove(moves[i]);
+            Optional<Integer> reply = probe(game.getBoard(), game.getTeamTurn());
+            game.undoMove();
+            if (reply.isPresent() && rank(reply.get()) > bestRank) {
+                bestRank = rank(reply.get());
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+
+    // How good a reply's value is for the side that moved into it: quick wins first, then draws, then slow losses
+    private static int rank(int replyValue) {
+        if (replyValue == Tablebase.DRAW) {
+            return 0;
+        }
+        return Tablebase.isWin(replyValue) ? -1000 + replyValue : 1000 - replyValue;
+    }
+
+    private boolean isCovered(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        if (Long.bitCount(board.getOccupied()) > maxPieces || game.getCastlingRights() != 0) {
+            return false;
+        }
+        ChessPosition pawn = game.getPawnMovedTwo();
+        if (pawn == null) {
+            return true;
+        }
+        int square = Bitboards.square(pawn);
+        long beside = ((Bitboards.bit(square) << 1) & ~Bitboards.FILE_A)
+                | ((Bitboards.bit(square) >>> 1) & ~Bitboards.FILE_H);
+        return (beside & board.getBitboard(game.getTeamTurn(), ChessPiece.PieceType.PAWN)) == 0;
+    }
+
+    private Optional<Integer> probe(ChessBoard board, ChessGame.TeamColor side) {
+        return table(board).map(table -> table.value(board, side));
+    }
+
+    private Optional<Tablebase> table(ChessBoard board) {
+        return tables.computeIfAbsent(Material.signature(board), signature -> {
+            Path file = directory.resolve(Material.of(board).name() + ".tb");
+            try {
+                return Files.exists(file) ? Optional.of(Tablebase.open(file)) : Optional.empty();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
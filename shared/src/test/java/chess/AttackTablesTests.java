@@ -0,0 +1,53 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class AttackTablesTests {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+    @Test
+    public void testSliderAttacksMatchRayWalkSuccess() {
+        Random random = new Random(240);
+        for (int i = 0; i < 20000; i++) {
+            int square = random.nextInt(64);
+            long occupied = random.nextLong() & random.nextLong();
+            Assertions.assertEquals(rayWalk(square, occupied, ROOK_DIRECTIONS),
+                    AttackTables.rookAttacks(square, occupied), "Rook attacks from " + square);
+            Assertions.assertEquals(rayWalk(square, occupied, BISHOP_DIRECTIONS),
+                    AttackTables.bishopAttacks(square, occupied), "Bishop attacks from " + square);
+        }
+    }
+
+    @Test
+    public void testLeaperAttacksSuccess() {
+        // Knight in the corner and king in the middle of the board
+        Assertions.assertEquals(2, Long.bitCount(AttackTables.knightAttacks(Bitboards.square(1, 1))));
+        Assertions.assertEquals(8, Long.bitCount(AttackTables.kingAttacks(Bitboards.square(4, 4))));
+        Assertions.assertEquals(Bitboards.bit(Bitboards.square(3, 2)),
+                AttackTables.pawnAttacks(ChessGame.TeamColor.WHITE, Bitboards.square(2, 1)));
+        Assertions.assertEquals(0L, AttackTables.pawnAttacks(ChessGame.TeamColor.BLACK, Bitboards.square(1, 4)));
+    }
+
+    private long rayWalk(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = Bitboards.row(square) + direction[0];
+            int col = Bitboards.column(square) + direction[1];
+            while (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+                long bit = Bitboards.bit(Bitboards.square(row, col));
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
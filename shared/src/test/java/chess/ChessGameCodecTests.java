@@ -0,0 +1,116 @@
+package chess;
+
+import chess.notation.Fen;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class ChessGameCodecTests {
+
+    @Test
+    public void testStartPositionSizeSuccess() {
+        byte[] bytes = ChessGameCodec.encode(new ChessGame());
+        Assertions.assertEquals(29, bytes.length);
+        assertSameGame(new ChessGame(), ChessGameCodec.decode(bytes));
+    }
+
+    @Test
+    public void testRandomGamesRoundTripSuccess() {
+        Random random = new Random(240);
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        for (int game = 0; game < 50; game++) {
+            ChessGame original = new ChessGame();
+            for (int ply = 0; ply < 120; ply++) {
+                int count = original.validMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                original.doMove(moves[random.nextInt(count)]);
+                ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(original));
+                assertSameGame(original, decoded);
+            }
+
+            // The decoded history takes back every move exactly as the original does
+            ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(original));
+            while (original.historySize() > 0) {
+                original.undoMove();
+                decoded.undoMove();
+                assertSameGame(original, decoded);
+            }
+        }
+    }
+
+    @Test
+    public void testSpecialStateRoundTripSuccess() {
+        ChessGame game = Fen.read("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 0 1");
+        game.resign();
+        ChessGame decoded = ChessGameCodec.decodeBase64(ChessGameCodec.encodeBase64(game));
+        assertSameGame(game, decoded);
+        Assertions.assertEquals(ChessGame.GameStatus.RESIGNED, decoded.getGameStatus());
+    }
+
+    @Test
+    public void testAdapterReadsBothFormsSuccess() {
+        ChessGame game = Fen.read(Fen.START_POSITION);
+        Gson binary = new GsonBuilder().registerTypeAdapter(ChessGame.class, new ChessGameBinaryAdapter()).create();
+        String binaryJson = binary.toJson(game);
+        Assertions.assertTrue(binaryJson.startsWith("\""));
+        assertSameGame(game, binary.fromJson(binaryJson, ChessGame.class));
+        assertSameGame(game, binary.fromJson(new Gson().toJson(game), ChessGame.class));
+    }
+
+    @Test
+    public void testLongHalfmoveClockRoundTripSuccess() {
+        // Knights shuffling back and forth run the halfmove clock past what a 5 byte history entry holds
+        ChessGame original = Fen.read("4k1n1/8/8/8/8/8/8/4K1N1 w - - 0 1");
+        int[] knightMoves = {PackedMove.encode(6, 21), PackedMove.encode(62, 45), PackedMove.encode(21, 6),
+                PackedMove.encode(45, 62)};
+        for (int ply = 0; ply < 80; ply++) {
+            original.doMove(knightMoves[ply % 4]);
+        }
+        Assertions.assertEquals(80, original.getHalfmoveClock());
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(original));
+        assertSameGame(original, decoded);
+        while (original.historySize() > 0) {
+            original.undoMove();
+            decoded.undoMove();
+            assertSameGame(original, decoded);
+        }
+    }
+
+    @Test
+    public void testHugeHalfmoveClockRoundTripSuccess() {
+        // FEN allows clocks far beyond any real game, more than even a 6 byte history entry holds
+        for (int clock : new int[]{20000, 999_999_999}) {
+            ChessGame original = Fen.read("4k1n1/8/8/8/8/8/8/4K1N1 w - - " + clock + " 1");
+            original.doMove(PackedMove.encode(6, 21));
+            ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(original));
+            assertSameGame(original, decoded);
+            decoded.undoMove();
+            Assertions.assertEquals(clock, decoded.getHalfmoveClock());
+        }
+    }
+
+    @Test
+    public void testBadEncodingFails() {
+        byte[] bytes = ChessGameCodec.encode(new ChessGame());
+        bytes[0] = 99;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(bytes));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessGameCodec.decode(new byte[]{1, 0, 0}));
+    }
+
+    private void assertSameGame(ChessGame expected, ChessGame actual) {
+        Assertions.assertEquals(expected.getBoard(), actual.getBoard());
+        Assertions.assertEquals(expected.getTeamTurn(), actual.getTeamTurn());
+        Assertions.assertEquals(expected.getCastlingRights(), actual.getCastlingRights());
+        Assertions.assertEquals(expected.getPawnMovedTwo(), actual.getPawnMovedTwo());
+        Assertions.assertEquals(expected.getHalfmoveClock(), actual.getHalfmoveClock());
+        Assertions.assertEquals(expected.getFullmoveNumber(), actual.getFullmoveNumber());
+        Assertions.assertEquals(expected.getZobristKey(), actual.getZobristKey());
+        Assertions.assertEquals(expected.historySize(), actual.historySize());
+        Assertions.assertEquals(expected.getGameStatus(), actual.getGameStatus());
+    }
+}
@@ -0,0 +1,98 @@
+package chess;
+
+import chess.notation.Fen;
+import chess.notation.San;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DrawDetectionTests {
+
+    @Test
+    public void testThreefoldRepetitionSuccess() {
+        ChessGame game = new ChessGame();
+        play(game, "Nf3", "Nf6", "Ng1", "Ng8");
+        Assertions.assertEquals(1, game.repetitionCount());
+        Assertions.assertFalse(game.isOver());
+        play(game, "Nf3", "Nf6", "Ng1", "Ng8");
+        Assertions.assertEquals(2, game.repetitionCount());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getGameStatus());
+        Assertions.assertTrue(game.isOver());
+
+        game.undoMove();
+        Assertions.assertFalse(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void testRepetitionAfterDecodeSuccess() {
+        ChessGame game = new ChessGame();
+        play(game, "e4", "e5", "Nf3", "Nf6", "Ng1", "Ng8", "Nf3", "Nf6", "Ng1");
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        play(decoded, "Ng8");
+        Assertions.assertEquals(2, decoded.repetitionCount());
+        Assertions.assertEquals(Fen.write(game.positionAt(4)), Fen.write(decoded.positionAt(4)));
+    }
+
+    @Test
+    public void testRepetitionThroughJsonSuccess() throws InvalidMoveException {
+        // The server stores the game as JSON and reads it back for every move
+        Gson gson = new Gson();
+        String stored = gson.toJson(new ChessGame());
+        for (String move : new String[]{"Nf3", "Nf6", "Ng1", "Ng8", "Nf3", "Nf6", "Ng1", "Ng8"}) {
+            ChessGame game = gson.fromJson(stored, ChessGame.class);
+            Assertions.assertFalse(game.isOver());
+            game.makeMove(PackedMove.toChessMove(San.read(game, move)));
+            stored = gson.toJson(game);
+        }
+        ChessGame game = gson.fromJson(stored, ChessGame.class);
+        Assertions.assertEquals(8, game.historySize());
+        Assertions.assertEquals(2, game.repetitionCount());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getGameStatus());
+    }
+
+    @Test
+    public void testIrreversibleMoveEndsRepetitionFails() {
+        // The same squares, but castling rights were lost on the way so the positions differ
+        ChessGame game = Fen.read("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        play(game, "Ke2", "Ke7", "Ke1", "Ke8", "Ke2", "Ke7", "Ke1", "Ke8");
+        Assertions.assertEquals(1, game.repetitionCount());
+        Assertions.assertFalse(game.isDraw());
+    }
+
+    @Test
+    public void testFiftyMoveRuleSuccess() {
+        ChessGame game = Fen.read("4k3/8/8/8/8/8/8/R3K3 w - - 99 80");
+        play(game, "Rb1");
+        Assertions.assertTrue(game.isFiftyMoveRule());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getGameStatus());
+
+        // Mate on the last move still wins
+        ChessGame mate = Fen.read("4k3/R7/8/8/8/8/8/1R2K3 w - - 99 80");
+        play(mate, "Rb8#");
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, mate.getGameStatus());
+    }
+
+    @Test
+    public void testInsufficientMaterialSuccess() {
+        Assertions.assertTrue(Fen.read("8/8/4k3/8/8/8/8/4K3 w - - 0 1").hasInsufficientMaterial());
+        Assertions.assertTrue(Fen.read("8/8/4k3/8/8/2N5/8/4K3 w - - 0 1").hasInsufficientMaterial());
+        // Bishops on c1 and f8 both stand on dark squares
+        Assertions.assertTrue(Fen.read("5b2/8/4k3/8/8/8/8/2B1K3 w - - 0 1").hasInsufficientMaterial());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW,
+                Fen.read("5b2/8/4k3/8/8/8/8/2B1K3 w - - 0 1").getGameStatus());
+    }
+
+    @Test
+    public void testInsufficientMaterialFails() {
+        Assertions.assertFalse(Fen.read("2b5/8/4k3/8/8/8/8/2B1K3 w - - 0 1").hasInsufficientMaterial());
+        Assertions.assertFalse(Fen.read("8/8/4k3/8/8/2N5/8/1N2K3 w - - 0 1").hasInsufficientMaterial());
+        Assertions.assertFalse(Fen.read("8/8/4k3/8/8/8/4P3/4K3 w - - 0 1").hasInsufficientMaterial());
+        Assertions.assertFalse(new ChessGame().isDraw());
+    }
+
+    private static void play(ChessGame game, String... moves) {
+        for (String move : moves) {
+            game.doMove(San.read(game, move));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FlyweightTests {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void testSharedInstancesSuccess() {
+        Assertions.assertSame(ChessPosition.of(2, 5), ChessPosition.of(2, 5));
+        Assertions.assertSame(ChessPosition.of(8, 8), Bitboards.position(63));
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                board.getPiece(ChessPosition.of(1, 1)));
+        // Off the board positions are still made, just not shared
+        Assertions.assertEquals(new ChessPosition(0, 9), ChessPosition.of(0, 9));
+    }
+
+    @Test
+    public void testJsonReadsSharedInstancesSuccess() throws InvalidMoveException {
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        Assertions.assertEquals("{\"startPosition\":{\"row\":2,\"col\":5},\"endPosition\":{\"row\":4,\"col\":5}}",
+                gson.toJson(move));
+        ChessMove read = gson.fromJson(gson.toJson(move), ChessMove.class);
+        Assertions.assertEquals(move, read);
+        Assertions.assertSame(ChessPosition.of(2, 5), read.getStartPosition());
+
+        ChessGame game = new ChessGame();
+        game.makeMove(move);
+        ChessGame copy = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.getBoard(), copy.getBoard());
+        Assertions.assertSame(ChessPosition.of(4, 5), copy.getPawnMovedTwo());
+        Assertions.assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                gson.fromJson("{\"pieceColor\":\"WHITE\",\"type\":\"PAWN\"}", ChessPiece.class));
+    }
+}
@@ -0,0 +1,62 @@
+package chess;
+
+import chess.notation.Fen;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class GameStatusTrackingTests {
+
+    @Test
+    public void testFoolsMateStatusSuccess() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        play(game, 2, 6, 3, 6);
+        play(game, 7, 5, 5, 5);
+        play(game, 2, 7, 4, 7);
+        Assertions.assertFalse(game.isOver());
+        play(game, 8, 4, 4, 8);
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.getGameStatus());
+        Assertions.assertTrue(game.isOver());
+    }
+
+    @Test
+    public void testCheckDoesNotEndGameSuccess() throws InvalidMoveException {
+        ChessGame game = Fen.read("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        play(game, 1, 1, 8, 1);
+        Assertions.assertEquals(ChessGame.GameStatus.CHECK, game.getGameStatus());
+        Assertions.assertFalse(game.isOver());
+    }
+
+    @Test
+    public void testStalemateAfterSetupSuccess() {
+        ChessGame game = Fen.read("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, game.getGameStatus());
+        Assertions.assertTrue(game.isOver());
+    }
+
+    @Test
+    public void testResignSurvivesSerializationSuccess() {
+        ChessGame game = new ChessGame();
+        game.resign();
+        Gson gson = new Gson();
+        ChessGame copy = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(ChessGame.GameStatus.RESIGNED, copy.getGameStatus());
+        Assertions.assertTrue(copy.isOver());
+    }
+
+    @Test
+    public void testClockSettersRecomputeStatusSuccess() {
+        ChessGame game = Fen.read("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+        game.setHalfmoveClock(150);
+        Assertions.assertTrue(game.isFiftyMoveRule());
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getGameStatus());
+        game.setHalfmoveClock(0);
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.getGameStatus());
+    }
+
+    private void play(ChessGame game, int fromRow, int fromCol, int toRow, int toCol) throws InvalidMoveException {
+        game.makeMove(new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null));
+    }
+}
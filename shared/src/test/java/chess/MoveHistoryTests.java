@@ -0,0 +1,100 @@
+package chess;
+
+import chess.notation.Fen;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MoveHistoryTests {
+
+    @Test
+    public void testPositionAtEveryPlySuccess() {
+        ChessGame game = new ChessGame();
+        List<String> positions = playOut(game, 150);
+        // Jump about out of order so some plies come from checkpoints and some from taking moves back
+        for (int i = 0; i < positions.size(); i++) {
+            int ply = (i * 37) % positions.size();
+            ChessGame position = game.positionAt(ply);
+            Assertions.assertEquals(positions.get(ply), Fen.write(position));
+            Assertions.assertEquals(ply, position.historySize());
+        }
+        Assertions.assertEquals(positions.get(positions.size() - 1), Fen.write(game));
+    }
+
+    @Test
+    public void testCheckpointsAfterTakeBackSuccess() {
+        ChessGame game = new ChessGame();
+        playOut(game, 100);
+        Assertions.assertNotNull(game.positionAt(90));
+        for (int i = 0; i < 40; i++) {
+            game.undoMove();
+        }
+        // Play a different line, so the checkpoints past the take back no longer hold
+        List<String> positions = new ArrayList<>();
+        for (int ply = 0; ply <= 60; ply++) {
+            positions.add(Fen.write(game.positionAt(ply)));
+        }
+        positions.addAll(playOut(game, 40).subList(1, 41));
+        for (int ply = game.historySize(); ply >= 0; ply -= 3) {
+            Assertions.assertEquals(positions.get(ply), Fen.write(game.positionAt(ply)));
+        }
+    }
+
+    @Test
+    public void testMoveHistorySuccess() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessMove e5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+        game.makeMove(e4);
+        game.makeMove(e5);
+        Assertions.assertEquals(List.of(e4, e5), game.getMoveHistory());
+        game.undoMove();
+        Assertions.assertEquals(List.of(e4), game.getMoveHistory());
+    }
+
+    @Test
+    public void testHistorySurvivesJsonSuccess() {
+        ChessGame game = new ChessGame();
+        List<String> positions = playOut(game, 40);
+
+        Gson gson = new Gson();
+        ChessGame read = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game.getMoveHistory(), read.getMoveHistory());
+        for (int ply = 0; ply < positions.size(); ply += 5) {
+            Assertions.assertEquals(positions.get(ply), Fen.write(read.positionAt(ply)));
+        }
+        read.undoMove();
+        Assertions.assertEquals(positions.get(positions.size() - 2), Fen.write(read));
+
+        // Games stored before the history was written still read, just without one
+        String old = gson.toJson(game).replaceAll(",\"history\":\\[.*\\]", "");
+        Assertions.assertEquals(0, gson.fromJson(old, ChessGame.class).historySize());
+    }
+
+    @Test
+    public void testPositionAtFails() {
+        ChessGame game = new ChessGame();
+        playOut(game, 4);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> game.positionAt(5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> game.positionAt(-1));
+    }
+
+    // Plays up to the given number of moves picked by ply, returning the FEN before each and after the last
+    private static List<String> playOut(ChessGame game, int plies) {
+        List<String> positions = new ArrayList<>();
+        positions.add(Fen.write(game));
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = game.validMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            game.doMove(moves[(ply * 7 + game.historySize()) % count]);
+            positions.add(Fen.write(game));
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import chess.notation.Fen;
+import chess.notation.San;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PieceListTests {
+
+    @Test
+    public void testKingSquareFollowsMovesSuccess() {
+        ChessGame game = Fen.read("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        ChessBoard board = game.getBoard();
+        Assertions.assertEquals(4, board.getKingSquare(ChessGame.TeamColor.WHITE));
+        game.doMove(San.read(game, "O-O"));
+        Assertions.assertEquals(6, board.getKingSquare(ChessGame.TeamColor.WHITE));
+        game.doMove(San.read(game, "Kd7"));
+        Assertions.assertEquals(51, board.getKingSquare(ChessGame.TeamColor.BLACK));
+        game.undoMove();
+        game.undoMove();
+        Assertions.assertEquals(4, board.getKingSquare(ChessGame.TeamColor.WHITE));
+        Assertions.assertEquals(60, board.getKingSquare(ChessGame.TeamColor.BLACK));
+
+        board.addPiece(ChessPosition.of(1, 5), null);
+        Assertions.assertEquals(-1, board.getKingSquare(ChessGame.TeamColor.WHITE));
+        Assertions.assertFalse(game.isInCheck(ChessGame.TeamColor.WHITE));
+    }
+
+    @Test
+    public void testPieceSquaresSuccess() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        int[] squares = new int[16];
+        Assertions.assertEquals(16, board.getPieceSquares(ChessGame.TeamColor.BLACK, squares));
+        Assertions.assertEquals(48, squares[0]);
+        Assertions.assertEquals(63, squares[15]);
+        Assertions.assertEquals(16, board.getPieces(ChessGame.TeamColor.WHITE).size());
+    }
+}
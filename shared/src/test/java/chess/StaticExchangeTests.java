@@ -0,0 +1,46 @@
+package chess;
+
+import chess.notation.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class StaticExchangeTests {
+
+    @Test
+    public void testUndefendedCaptureSuccess() {
+        ChessBoard board = Fen.read("4k3/8/8/3p4/8/8/8/3RK3 w - - 0 1").getBoard();
+        Assertions.assertEquals(100, board.staticExchange(move(1, 4, 5, 4)));
+    }
+
+    @Test
+    public void testDefendedCaptureSuccess() {
+        // Pawn takes knight, pawn takes back
+        ChessBoard board = Fen.read("4k3/8/4p3/3n4/4P3/8/8/4K3 w - - 0 1").getBoard();
+        Assertions.assertEquals(220, board.staticExchange(move(4, 5, 5, 4)));
+    }
+
+    @Test
+    public void testLosingCaptureSuccess() {
+        // Queen takes a pawn defended by a pawn
+        ChessBoard board = Fen.read("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1").getBoard();
+        Assertions.assertEquals(-800, board.staticExchange(move(1, 4, 5, 4)));
+    }
+
+    @Test
+    public void testXRayAttackerSuccess() {
+        // The rook on d1 backs up the one on d2, so recapturing with the rook on d8 would only lose it
+        ChessBoard board = Fen.read("3rk3/8/8/3p4/8/8/3R4/3RK3 w - - 0 1").getBoard();
+        Assertions.assertEquals(100, board.staticExchange(move(2, 4, 5, 4)));
+    }
+
+    @Test
+    public void testKingCannotRecaptureDefendedPieceSuccess() {
+        // The king may not take back on d7 while the bishop on a4 guards it
+        ChessBoard board = Fen.read("8/3pk3/8/8/B7/8/8/3RK3 w - - 0 1").getBoard();
+        Assertions.assertEquals(100, board.staticExchange(move(1, 4, 7, 4)));
+    }
+
+    private static int move(int fromRow, int fromCol, int toRow, int toCol) {
+        return PackedMove.encode(Bitboards.square(fromRow, fromCol), Bitboards.square(toRow, toCol));
+    }
+}
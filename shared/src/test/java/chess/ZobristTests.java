@@ -0,0 +1,94 @@
+package chess;
+
+import chess.notation.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ZobristTests {
+
+    @Test
+    public void testTranspositionSameKeySuccess() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long start = game.getZobristKey();
+        play(game, 1, 7, 3, 6);
+        Assertions.assertNotEquals(start, game.getZobristKey());
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+        play(game, 6, 6, 8, 7);
+        Assertions.assertEquals(start, game.getZobristKey());
+    }
+
+    @Test
+    public void testSideToMoveChangesKeySuccess() {
+        ChessGame game = new ChessGame();
+        long white = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(white, game.getZobristKey());
+    }
+
+    @Test
+    public void testCastlingRightsChangeKeySuccess() throws InvalidMoveException {
+        // Knights out and back with the rook moving in between gives the same board but lost castling rights
+        ChessGame game = new ChessGame();
+        play(game, 1, 7, 3, 6);
+        play(game, 8, 7, 6, 6);
+        play(game, 1, 8, 1, 7);
+        play(game, 6, 6, 8, 7);
+        play(game, 1, 7, 1, 8);
+        play(game, 8, 7, 6, 6);
+        play(game, 3, 6, 1, 7);
+        play(game, 6, 6, 8, 7);
+        ChessGame fresh = new ChessGame();
+        Assertions.assertEquals(fresh.getBoard().getZobristKey(), game.getBoard().getZobristKey());
+        Assertions.assertNotEquals(fresh.getZobristKey(), game.getZobristKey());
+    }
+
+    @Test
+    public void testUndoRestoresKeySuccess() {
+        ChessGame game = new ChessGame();
+        ChessBoard board = game.getBoard();
+        long start = board.getZobristKey();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        ChessPiece captured = board.doMove(move);
+        Assertions.assertNotEquals(start, board.getZobristKey());
+        board.undoMove(move, captured);
+        Assertions.assertEquals(start, board.getZobristKey());
+    }
+
+    @Test
+    public void testUndoTakesBackGivenMoveSuccess() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        long start = board.getZobristKey();
+        board.doMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        long afterE4 = board.getZobristKey();
+        // Nf6 through the packed API, then taken back through the ChessMove one
+        board.doMove(PackedMove.encode(62, 45));
+        board.undoMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null), null);
+        Assertions.assertEquals(afterE4, board.getZobristKey());
+        Assertions.assertNotNull(board.getPiece(ChessPosition.of(4, 5)));
+        Assertions.assertNotNull(board.getPiece(ChessPosition.of(8, 7)));
+        board.undoMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null), null);
+        Assertions.assertEquals(start, board.getZobristKey());
+    }
+
+    @Test
+    public void testUndoSpecialMovesSuccess() {
+        ChessBoard board = Fen.read("4k3/8/8/3Pp3/8/8/8/R3K2R w KQ e6 0 1").getBoard();
+        long start = board.getZobristKey();
+        ChessMove enPassant = new ChessMove(ChessPosition.of(5, 4), ChessPosition.of(6, 5), null);
+        Assertions.assertNull(board.doMove(enPassant));
+        Assertions.assertNull(board.getPiece(ChessPosition.of(5, 5)));
+        board.undoMove(enPassant, null);
+        Assertions.assertEquals(start, board.getZobristKey());
+
+        ChessMove castle = new ChessMove(ChessPosition.of(1, 5), ChessPosition.of(1, 3), null);
+        board.undoMove(castle, board.doMove(castle));
+        Assertions.assertEquals(start, board.getZobristKey());
+        Assertions.assertNotNull(board.getPiece(ChessPosition.of(1, 1)));
+    }
+
+    private void play(ChessGame game, int fromRow, int fromCol, int toRow, int toCol) throws InvalidMoveException {
+        game.makeMove(new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null));
+    }
+}
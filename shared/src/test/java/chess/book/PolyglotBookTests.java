@@ -0,0 +1,137 @@
+package chess.book;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import chess.notation.Fen;
+import chess.notation.San;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+public class PolyglotBookTests {
+
+    @TempDir
+    Path directory;
+
+    private final PolyglotKeys keys = PolyglotKeys.STANDARD;
+
+    @Test
+    public void testLookupSuccess() throws IOException {
+        ChessGame start = Fen.read(Fen.START_POSITION);
+        Map<Long, int[][]> book = new TreeMap<>(Long::compareUnsigned);
+        // e2e4 and d2d4, plus a move that is not legal in the position
+        book.put(keys.key(start), new int[][]{{bookMove(12, 28), 3}, {bookMove(11, 27), 1}, {bookMove(0, 63), 5}});
+        book.put(keys.key(Fen.read("4k3/8/8/8/8/8/8/4K3 w - - 0 1")), new int[][]{{bookMove(4, 12), 1}});
+        PolyglotBook opened = PolyglotBook.open(write(book), keys);
+
+        Assertions.assertEquals(4, opened.size());
+        List<PolyglotBook.Entry> entries = opened.lookup(start);
+        Assertions.assertEquals(2, entries.size());
+        Assertions.assertEquals("e2e4", PackedMove.toString(entries.get(0).move()));
+        Assertions.assertEquals(3, entries.get(0).weight());
+        Assertions.assertEquals(PackedMove.DOUBLE_PUSH, PackedMove.flag(entries.get(0).move()));
+        Assertions.assertTrue(opened.lookup(Fen.read("4k3/8/8/8/8/8/8/3QK3 w - - 0 1")).isEmpty());
+    }
+
+    @Test
+    public void testCastlingMoveSuccess() throws IOException {
+        ChessGame game = Fen.read("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        Map<Long, int[][]> book = new TreeMap<>(Long::compareUnsigned);
+        // Polyglot writes castling king side as e1h1
+        book.put(keys.key(game), new int[][]{{bookMove(4, 7), 1}});
+        List<PolyglotBook.Entry> entries = PolyglotBook.open(write(book), keys).lookup(game);
+        Assertions.assertEquals(1, entries.size());
+        Assertions.assertEquals("e1g1", PackedMove.toString(entries.get(0).move()));
+        Assertions.assertEquals(PackedMove.CASTLE, PackedMove.flag(entries.get(0).move()));
+    }
+
+    @Test
+    public void testWeightedPickSuccess() throws IOException {
+        ChessGame start = Fen.read(Fen.START_POSITION);
+        Map<Long, int[][]> book = new TreeMap<>(Long::compareUnsigned);
+        book.put(keys.key(start), new int[][]{{bookMove(12, 28), 3}, {bookMove(11, 27), 1}, {bookMove(6, 21), 0}});
+        PolyglotBook opened = PolyglotBook.open(write(book), keys);
+
+        SplittableRandom random = new SplittableRandom(1);
+        int e4 = 0;
+        for (int i = 0; i < 4000; i++) {
+            String move = PackedMove.toString(opened.pickMove(start, random));
+            Assertions.assertNotEquals("g1f3", move);
+            if (move.equals("e2e4")) {
+                e4++;
+            }
+        }
+        Assertions.assertTrue(e4 > 2800 && e4 < 3200, "e2e4 picked " + e4 + " times");
+    }
+
+    @Test
+    public void testStandardKeysSuccess() {
+        // The keys the Polyglot specification publishes for these lines
+        assertKey(0x463b96181691fc9cL);
+        assertKey(0x823c9b50fd114196L, "e4");
+        assertKey(0x0756b94461c50fb0L, "e4", "d5");
+        assertKey(0x662fafb965db29d4L, "e4", "d5", "e5");
+        assertKey(0x22a48b5a8e47ff78L, "e4", "d5", "e5", "f5");
+        assertKey(0x652a607ca3f242c1L, "e4", "d5", "e5", "f5", "Ke2");
+        assertKey(0x00fdd303c946bdd9L, "e4", "d5", "e5", "f5", "Ke2", "Kf7");
+        assertKey(0x3c8123ea7b067637L, "a4", "b5", "h4", "b4", "c4");
+        assertKey(0x5c3f9b829b279560L, "a4", "b5", "h4", "b4", "c4", "bxc3", "Ra3");
+    }
+
+    @Test
+    public void testEnPassantFileOnlyBesidePawnSuccess() {
+        // After e4 no black pawn can take on e3, so the key matches the same position without the double push
+        ChessGame pushed = new ChessGame();
+        pushed.doMove(San.read(pushed, "e4"));
+        Assertions.assertEquals(keys.key(Fen.read("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1")),
+                keys.key(pushed));
+    }
+
+    @Test
+    public void testLoadKeysFromSourceTextSuccess() throws IOException {
+        StringBuilder source = new StringBuilder("const uint64 Random64[781] = {\n");
+        long[] random = new SplittableRandom(5).longs(PolyglotKeys.SIZE).toArray();
+        for (long value : random) {
+            source.append(String.format("   U64(0x%016X),%n", value));
+        }
+        source.append("};\n");
+        Path file = directory.resolve("random64.c");
+        Files.writeString(file, source);
+        ChessGame start = Fen.read(Fen.START_POSITION);
+        Assertions.assertEquals(new PolyglotKeys(random).key(start), PolyglotKeys.load(file).key(start));
+    }
+
+    private void assertKey(long expected, String... moves) {
+        ChessGame game = new ChessGame();
+        for (String move : moves) {
+            game.doMove(San.read(game, move));
+        }
+        Assertions.assertEquals(expected, keys.key(game), () -> String.join(" ", moves));
+    }
+
+    private static int bookMove(int from, int to) {
+        return to | (from << 6);
+    }
+
+    private Path write(Map<Long, int[][]> book) throws IOException {
+        int entries = book.values().stream().mapToInt(moves -> moves.length).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(entries * 16);
+        book.forEach((key, moves) -> {
+            for (int[] move : moves) {
+                buffer.putLong(key).putShort((short) move[0]).putShort((short) move[1]).putInt(0);
+            }
+        });
+        Path file = directory.resolve("book" + System.nanoTime() + ".bin");
+        Files.write(file, buffer.array());
+        return file;
+    }
+}
@@ -0,0 +1,98 @@
+package chess.notation;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class FenTests {
+
+    private static final List<String> POSITIONS = List.of(
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 12 40",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "r3k2r/8/8/8/8/8/8/R3K2R b Kq - 99 120");
+
+    @Test
+    public void testRoundTripSuccess() {
+        for (String fen : POSITIONS) {
+            Assertions.assertEquals(fen, Fen.write(Fen.read(fen)));
+        }
+    }
+
+    @Test
+    public void testReadsClocksSuccess() {
+        ChessGame game = Fen.read("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40");
+        Assertions.assertEquals(12, game.getHalfmoveClock());
+        Assertions.assertEquals(40, game.getFullmoveNumber());
+
+        // Clocks left out default to the start of a game
+        ChessGame bare = Fen.read("4k3/8/8/8/8/8/8/4K3 w");
+        Assertions.assertEquals(0, bare.getHalfmoveClock());
+        Assertions.assertEquals(1, bare.getFullmoveNumber());
+    }
+
+    @Test
+    public void testClocksFollowMovesSuccess() {
+        ChessGame game = Fen.read(Fen.START_POSITION);
+        play(game, "g1f3");
+        play(game, "g8f6");
+        Assertions.assertEquals("rnbqkb1r/pppppppp/5n2/8/8/5N2/PPPPPPPP/RNBQKB1R w KQkq - 2 2", Fen.write(game));
+        play(game, "e2e4");
+        Assertions.assertEquals("rnbqkb1r/pppppppp/5n2/8/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq e3 0 2", Fen.write(game));
+        game.undoMove();
+        game.undoMove();
+        Assertions.assertEquals("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - 1 1", Fen.write(game));
+    }
+
+    @Test
+    public void testReadsBufferLinesSuccess() {
+        ByteBuffer buffer = ByteBuffer.wrap(String.join("\n", POSITIONS).concat("\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        for (String fen : POSITIONS) {
+            Assertions.assertEquals(fen, Fen.write(Fen.read(buffer)));
+        }
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testEnPassantMustFitPositionFails() {
+        // The square is behind the side to move, so White cannot be the one capturing on e3
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.read("4k3/8/8/8/3Pp3/8/8/4K3 w - e3 0 1"));
+        // No black pawn stands in front of e6, so there is nothing to take and the field is dropped
+        ChessGame game = Fen.read("4k3/8/8/3P4/8/8/8/4K3 w - e6 0 1");
+        Assertions.assertNull(game.getPawnMovedTwo());
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        int count = game.validMoves(moves);
+        for (int i = 0; i < count; i++) {
+            Assertions.assertNotEquals(PackedMove.EN_PASSANT, PackedMove.flag(moves[i]));
+        }
+        Assertions.assertEquals("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1", Fen.write(game));
+    }
+
+    @Test
+    public void testMalformedFails() {
+        for (String fen : List.of("", "8/8/8/8/8/8/8/8", "9/8/8/8/8/8/8/8 w", "8/8/8/8/8/8/8 w",
+                "8/8/8/8/8/8/8/7X w", "4k3/8/8/8/8/8/8/4K3 x", "4k3/8/8/8/8/8/8/4K3 w KX",
+                "4k3/8/8/8/8/8/8/4K3 w - e4", "4k3/8/8/8/8/8/8/4K3 w - - x 1", "4k3/8/8/8/8/8/8/4K3 w - - 0 1 2")) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.read(fen), fen);
+        }
+    }
+
+    private static void play(ChessGame game, String move) {
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        int count = game.validMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.toString(moves[i]).equals(move)) {
+                game.doMove(moves[i]);
+                return;
+            }
+        }
+        Assertions.fail("Not a legal move: " + move);
+    }
+}
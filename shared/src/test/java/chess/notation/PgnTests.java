@@ -0,0 +1,181 @@
+package chess.notation;
+
+import chess.ChessGame;
+import chess.ChessGameCodec;
+import chess.PackedMove;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class PgnTests {
+
+    // Morphy against the Duke of Brunswick and Count Isouard, Paris 1858
+    private static final String OPERA_GAME = "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 "
+            + "Qe7 8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ "
+            + "Nxd7 16. Qb8+ Nxb8 17. Rd8# 1-0";
+
+    @Test
+    public void testSanSuccess() {
+        assertSan("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "exd6", "e5d6");
+        assertSan("4k3/8/8/8/8/R7/8/R3K3 w - - 0 1", "R1a2", "a1a2");
+        assertSan("1k6/8/8/8/4Q2Q/8/8/K6Q w - - 0 1", "Qh4e1", "h4e1");
+        assertSan("3rk3/4P3/8/8/8/8/8/4K3 w - - 0 1", "exd8=Q+", "e7d8q");
+        assertSan("r3k3/8/8/8/8/8/8/4K3 b q - 0 1", "O-O-O", "e8c8");
+
+        ChessGame game = Fen.read("3rk3/4P3/8/8/8/8/8/4K3 w - - 0 1");
+        Assertions.assertEquals(San.read(game, "exd8=Q+"), San.read(game, "exd8Q"));
+        ChessGame promotion = Fen.read("8/4P1k1/8/8/8/8/8/4K3 w - - 0 1");
+        Assertions.assertEquals(San.read(promotion, "e8=N+"), San.read(promotion, "e7e8N!?"));
+        Assertions.assertEquals(San.read(Fen.read("r3k3/8/8/8/8/8/8/4K3 b q - 0 1"), "O-O-O"),
+                San.read(Fen.read("r3k3/8/8/8/8/8/8/4K3 b q - 0 1"), "0-0-0"));
+    }
+
+    @Test
+    public void testSanFails() {
+        ChessGame game = Fen.read("4k3/8/8/8/8/R7/8/R3K3 w - - 0 1");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.read(game, "Ra2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.read(game, "Rb4"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.read(game, "O-O"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> San.read(game, "Zz9"));
+    }
+
+    @Test
+    public void testRoundTripSuccess() throws IOException {
+        String pgn = "[Event \"Paris \\\"Opera\\\"\"]\n[Site \"Paris FRA\"]\n[Date \"1858.??.??\"]\n[Round \"?\"]\n"
+                + "[White \"Paul Morphy\"]\n[Black \"Duke Karl / Count Isouard\"]\n[Result \"1-0\"]\n"
+                + "[ECO \"C41\"]\n\n" + wrap(OPERA_GAME) + "\n\n";
+        List<PgnGame> games = readAll(pgn);
+        Assertions.assertEquals(1, games.size());
+        PgnGame game = games.get(0);
+        Assertions.assertEquals("Paris \"Opera\"", game.tags().get("Event"));
+        Assertions.assertEquals(33, game.moves().length);
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.replay().getGameStatus());
+
+        Assertions.assertEquals(pgn, write(games));
+    }
+
+    @Test
+    public void testSkipsCommentsAndVariationsSuccess() {
+        String pgn = "% exported by hand\n[Event \"Test\"]\n\n1.e4 {best by test} e5 (1...c5 {Sicilian} 2.Nf3 (2.c3)) "
+                + "2.Nf3 $1 ; the usual\nNc6 3.Bb5 a6?! 1/2-1/2\n"
+                + "1. d4 d5 *";
+        List<PgnGame> games = readAll(pgn);
+        Assertions.assertEquals(2, games.size());
+        Assertions.assertEquals(6, games.get(0).moves().length);
+        Assertions.assertEquals("1/2-1/2", games.get(0).result());
+        Assertions.assertEquals(2, games.get(1).moves().length);
+        Assertions.assertEquals(PgnGame.UNFINISHED, games.get(1).result());
+    }
+
+    @Test
+    public void testIllegalMoveFails() {
+        String pgn = "[Event \"Bad\"]\n\n1. e4 e5 2. Ke3 Nc6 1-0\n\n[Event \"Good\"]\n\n1. d4 *\n";
+        PgnReader reader = new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8))));
+        Assertions.assertThrows(IllegalArgumentException.class, reader::next);
+        // The bad game is skipped so reading carries on with the next
+        Assertions.assertEquals("Good", reader.next().tags().get("Event"));
+        Assertions.assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testSetUpPositionSuccess() throws IOException {
+        ChessGame game = Fen.read("4k3/8/8/8/8/8/4P3/4K3 b - - 0 30");
+        game.doMove(San.read(game, "Kd7"));
+        game.doMove(San.read(game, "e4"));
+        PgnGame pgn = PgnGame.of(game, Map.of("Event", "Endgame"));
+        Assertions.assertEquals("4k3/8/8/8/8/8/4P3/4K3 b - - 0 30", pgn.tags().get("FEN"));
+
+        String text = write(List.of(pgn));
+        Assertions.assertTrue(text.contains("\n30... Kd7 31. e4 *\n"));
+        PgnGame read = readAll(text).get(0);
+        Assertions.assertEquals(Fen.write(game), Fen.write(read.replay()));
+    }
+
+    @Test
+    public void testDrawResultSuccess() throws IOException {
+        ChessGame game = new ChessGame();
+        for (String move : new String[]{"Nf3", "Nf6", "Ng1", "Ng8", "Nf3", "Nf6", "Ng1", "Ng8"}) {
+            game.doMove(San.read(game, move));
+        }
+        Assertions.assertEquals(ChessGame.GameStatus.DRAW, game.getGameStatus());
+        PgnGame pgn = PgnGame.of(game, Map.of());
+        Assertions.assertEquals("1/2-1/2", pgn.result());
+        Assertions.assertTrue(write(List.of(pgn)).endsWith(" Ng8 1/2-1/2\n\n"));
+    }
+
+    @Test
+    public void testResignedResultSuccess() {
+        ChessGame game = new ChessGame();
+        game.doMove(San.read(game, "e4"));
+        game.resign(ChessGame.TeamColor.BLACK);
+        Assertions.assertEquals("1-0", PgnGame.of(game, Map.of()).result());
+        // The resigning team is stored with the game, as the server keeps it between moves
+        Gson gson = new Gson();
+        ChessGame stored = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals("1-0", PgnGame.of(stored, Map.of()).result());
+        ChessGame decoded = ChessGameCodec.decode(ChessGameCodec.encode(game));
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, decoded.getResignedTeam());
+
+        ChessGame white = new ChessGame();
+        white.resign(ChessGame.TeamColor.WHITE);
+        Assertions.assertEquals("0-1", PgnGame.of(white, Map.of()).result());
+
+        // Without the resigning team the caller has to give the result
+        ChessGame unknown = new ChessGame();
+        unknown.resign();
+        Assertions.assertEquals(PgnGame.UNFINISHED, PgnGame.of(unknown, Map.of()).result());
+        Assertions.assertEquals("0-1", PgnGame.of(unknown, Map.of("Result", "0-1")).result());
+    }
+
+    private static void assertSan(String fen, String san, String move) {
+        ChessGame game = Fen.read(fen);
+        int packed = San.read(game, san);
+        Assertions.assertEquals(move, PackedMove.toString(packed));
+        Assertions.assertEquals(san, San.write(game, packed));
+    }
+
+    private static List<PgnGame> readAll(String pgn) {
+        List<PgnGame> games = new ArrayList<>();
+        new PgnReader(Channels.newChannel(new ByteArrayInputStream(pgn.getBytes(StandardCharsets.UTF_8))))
+                .forEachRemaining(games::add);
+        return games;
+    }
+
+    private static String write(List<PgnGame> games) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PgnWriter writer = new PgnWriter(Channels.newChannel(out))) {
+            for (PgnGame game : games) {
+                writer.write(game);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // Breaks movetext into lines of at most 80 characters, as the writer does
+    private static String wrap(String movetext) {
+        StringBuilder wrapped = new StringBuilder();
+        int lineStart = 0;
+        for (String word : movetext.split(" ")) {
+            if (wrapped.length() > lineStart) {
+                if (wrapped.length() - lineStart + 1 + word.length() > 80) {
+                    wrapped.append('\n');
+                    lineStart = wrapped.length();
+                } else {
+                    wrapped.append(' ');
+                }
+            }
+            wrapped.append(word);
+        }
+        return wrapped.toString();
+    }
+}
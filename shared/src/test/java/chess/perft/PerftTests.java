@@ -0,0 +1,45 @@
+package chess.perft;
+
+import chess.ChessGame;
+import chess.notation.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class PerftTests {
+
+    // Keeps each position under about a million nodes so the suite stays quick
+    private static final long NODE_LIMIT = 1_000_000;
+
+    @Test
+    public void testStandardPositionsSuccess() {
+        for (PerftPosition position : PerftPosition.STANDARD) {
+            Perft perft = new Perft(Fen.read(position.fen()));
+            for (int depth = 1; depth <= position.maxDepth() && position.nodes(depth) <= NODE_LIMIT; depth++) {
+                Assertions.assertEquals(position.nodes(depth), perft.perft(depth),
+                        position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    public void testDivideSumsToPerftSuccess() {
+        Perft perft = new Perft(new ChessGame());
+        Map<String, Long> divide = perft.divide(3);
+        Assertions.assertEquals(20, divide.size());
+        Assertions.assertEquals(600L, divide.get("e2e4"));
+        Assertions.assertEquals(8902, divide.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void testUndoRestoresGameSuccess() {
+        ChessGame game = Fen.read(PerftPosition.STANDARD.get(1).fen());
+        long key = game.getZobristKey();
+        int rights = game.getCastlingRights();
+        new Perft(game).perft(3);
+        Assertions.assertEquals(key, game.getZobristKey());
+        Assertions.assertEquals(rights, game.getCastlingRights());
+        Assertions.assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    }
+}
@@ -0,0 +1,73 @@
+package chess.search;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+public class BatchAnalyzerTests {
+
+    private static final String MATE_IN_ONE = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+
+    @Test
+    public void testAnalyzesEveryJobSuccess() {
+        List<BatchAnalyzer.Job> jobs = new ArrayList<>();
+        for (int id = 0; id < 20; id++) {
+            jobs.add(BatchAnalyzer.Job.of(id, MATE_IN_ONE, SearchLimits.depth(1 + id % 4)));
+        }
+        Set<Long> ids = new HashSet<>();
+        try (BatchAnalyzer analyzer = new BatchAnalyzer(4)) {
+            analyzer.analyze(jobs, analysis -> {
+                Assertions.assertTrue(ids.add(analysis.job().id()));
+                Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                        analysis.result().bestMove());
+                Assertions.assertEquals(1, analysis.result().mateIn());
+                Assertions.assertEquals(1, analysis.result().pv().length);
+            });
+        }
+        Assertions.assertEquals(20, ids.size());
+    }
+
+    @Test
+    public void testReadsBatchOnlyAsFarAsResultsSuccess() {
+        int[] taken = new int[1];
+        Iterator<BatchAnalyzer.Job> jobs = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return taken[0] < 1000;
+            }
+
+            @Override
+            public BatchAnalyzer.Job next() {
+                return BatchAnalyzer.Job.of(taken[0]++, MATE_IN_ONE, SearchLimits.depth(2));
+            }
+        };
+        try (BatchAnalyzer analyzer = new BatchAnalyzer(2)) {
+            Iterator<BatchAnalyzer.Analysis> results = analyzer.analyze(jobs);
+            for (int read = 1; read <= 10; read++) {
+                results.next();
+                // Two threads keep at most four positions in hand
+                Assertions.assertTrue(taken[0] - read <= 4, taken[0] + " taken after " + read + " results");
+            }
+        }
+    }
+
+    @Test
+    public void testStreamSuccess() {
+        try (BatchAnalyzer analyzer = new BatchAnalyzer(3)) {
+            Set<Long> ids = analyzer.analyze(LongStream.range(0, 12)
+                            .mapToObj(id -> BatchAnalyzer.Job.of(id, MATE_IN_ONE, SearchLimits.nodes(5000))))
+                    .map(analysis -> analysis.job().id())
+                    .collect(Collectors.toSet());
+            Assertions.assertEquals(12, ids.size());
+        }
+    }
+}
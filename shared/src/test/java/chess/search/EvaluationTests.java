@@ -0,0 +1,93 @@
+package chess.search;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPosition;
+import chess.PackedMove;
+import chess.notation.Fen;
+import chess.perft.PerftPosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class EvaluationTests {
+
+    @Test
+    public void testStartPositionIsBalancedSuccess() {
+        Assertions.assertEquals(0, Evaluation.evaluate(Fen.read(Fen.START_POSITION)));
+    }
+
+    @Test
+    public void testMirroredPositionsScoreTheSameSuccess() {
+        for (PerftPosition position : PerftPosition.STANDARD) {
+            ChessGame game = Fen.read(position.fen());
+            ChessGame mirrored = Fen.read(mirror(position.fen()));
+            Assertions.assertEquals(Evaluation.evaluate(game), Evaluation.evaluate(mirrored), position.name());
+        }
+    }
+
+    @Test
+    public void testExtraQueenSuccess() {
+        ChessGame game = Fen.read("4k3/pppppppp/8/8/8/8/PPPPPPPP/3QK3 w - - 0 1");
+        Assertions.assertTrue(Evaluation.evaluate(game) > 800);
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertTrue(Evaluation.evaluate(game) < -800);
+    }
+
+    @Test
+    public void testIncrementalSumsMatchRebuiltBoardSuccess() {
+        Random random = new Random(14);
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        for (PerftPosition position : PerftPosition.STANDARD) {
+            ChessGame game = Fen.read(position.fen());
+            ChessBoard before = rebuild(game.getBoard());
+            int played = 0;
+            for (int ply = 0; ply < 60; ply++) {
+                int count = game.validMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                game.doMove(moves[random.nextInt(count)]);
+                played++;
+                assertSameSums(rebuild(game.getBoard()), game.getBoard());
+            }
+            for (int i = 0; i < played; i++) {
+                game.undoMove();
+            }
+            assertSameSums(before, game.getBoard());
+        }
+    }
+
+    private static void assertSameSums(ChessBoard expected, ChessBoard actual) {
+        Assertions.assertEquals(expected.getMiddlegameScore(), actual.getMiddlegameScore());
+        Assertions.assertEquals(expected.getEndgameScore(), actual.getEndgameScore());
+        Assertions.assertEquals(expected.getPhase(), actual.getPhase());
+    }
+
+    // A fresh board with the same pieces, so its sums are built from scratch
+    private static ChessBoard rebuild(ChessBoard board) {
+        ChessBoard copy = new ChessBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                copy.addPiece(position, board.getPiece(position));
+            }
+        }
+        return copy;
+    }
+
+    // The same position with the board flipped top to bottom and the colors swapped
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] ranks = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int i = ranks.length - 1; i >= 0; i--) {
+            for (char c : ranks[i].toCharArray()) {
+                placement.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+            }
+            placement.append(i > 0 ? "/" : "");
+        }
+        return placement + (fields[1].equals("w") ? " b" : " w") + " - - 0 1";
+    }
+}
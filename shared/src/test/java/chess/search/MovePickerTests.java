@@ -0,0 +1,84 @@
+package chess.search;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import chess.notation.Fen;
+import chess.perft.PerftPosition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MovePickerTests {
+
+    @Test
+    public void testPicksEveryLegalMoveOnceSuccess() {
+        int[] buffer = new int[PackedMove.MAX_MOVES];
+        for (PerftPosition position : PerftPosition.STANDARD) {
+            ChessGame game = Fen.read(position.fen());
+            int count = game.validMoves(buffer);
+            Set<Integer> legal = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                legal.add(buffer[i]);
+            }
+            // A legal hash move, a killer from some other position and an impossible move should all be handled
+            MovePicker picker = new MovePicker(game, new int[12 * 64]);
+            picker.reset(buffer[count - 1], PackedMove.encode(0, 63), buffer[0]);
+            List<Integer> picked = pickAll(picker);
+            Assertions.assertEquals(count, picked.size(), position.name());
+            Assertions.assertEquals(legal, new HashSet<>(picked), position.name());
+            Assertions.assertEquals(buffer[count - 1], picked.get(0), position.name());
+        }
+    }
+
+    @Test
+    public void testCapturesComeFirstByVictimSuccess() {
+        // The pawn on d4 can take the queen on e5 or the knight on c5, and the queen on h3 can take the rook on h8
+        // but would be lost to the queen on e5
+        ChessGame game = Fen.read("4k2r/8/8/2n1q3/3P4/7Q/8/6K1 w - - 0 1");
+        MovePicker picker = new MovePicker(game, new int[12 * 64]);
+        picker.reset(PackedMove.NONE, PackedMove.NONE, PackedMove.NONE);
+        List<Integer> picked = pickAll(picker);
+        Assertions.assertEquals("d4e5", PackedMove.toString(picked.get(0)));
+        Assertions.assertEquals("d4c5", PackedMove.toString(picked.get(1)));
+        Assertions.assertEquals("h3h8", PackedMove.toString(picked.get(picked.size() - 1)));
+    }
+
+    @Test
+    public void testLosingCapturesComeLastSuccess() {
+        // Taking the pawn on d5 loses the queen to the pawn on c6, so even quiet moves go before it
+        ChessGame game = Fen.read("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        MovePicker picker = new MovePicker(game, new int[12 * 64]);
+        picker.reset(PackedMove.NONE, PackedMove.NONE, PackedMove.NONE);
+        List<Integer> picked = pickAll(picker);
+        Assertions.assertEquals("d1d5", PackedMove.toString(picked.get(picked.size() - 1)));
+
+        picker.resetCaptures();
+        Assertions.assertEquals(PackedMove.NONE, picker.next());
+    }
+
+    @Test
+    public void testKillersAndHistoryOrderQuietMovesSuccess() {
+        ChessGame game = Fen.read("4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        int[] history = new int[12 * 64];
+        int killer = PackedMove.encode(0, 8);
+        int favored = PackedMove.encode(0, 3);
+        history[game.getBoard().pieceAt(0) * 64 + 3] = 100;
+        MovePicker picker = new MovePicker(game, history);
+        picker.reset(PackedMove.NONE, killer, PackedMove.NONE);
+        List<Integer> picked = pickAll(picker);
+        Assertions.assertEquals(killer, picked.get(0));
+        Assertions.assertEquals(favored, picked.get(1));
+    }
+
+    private static List<Integer> pickAll(MovePicker picker) {
+        List<Integer> picked = new ArrayList<>();
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            picked.add(move);
+        }
+        return picked;
+    }
+}
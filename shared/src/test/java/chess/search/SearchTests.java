@@ -0,0 +1,93 @@
+package chess.search;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.notation.Fen;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SearchTests {
+
+    @Test
+    public void testFindsMateInOneSuccess() {
+        // Back rank mate with the rook
+        ChessGame game = Fen.read("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = Search.bestMove(game, SearchLimits.depth(4));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null),
+                result.bestMove());
+        Assertions.assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    public void testWinsHangingQueenSuccess() {
+        ChessGame game = Fen.read("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = Search.bestMove(game, SearchLimits.depth(3));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null),
+                result.bestMove());
+        Assertions.assertTrue(result.score() > 300);
+    }
+
+    @Test
+    public void testQuiescenceSeesRecaptureSuccess() {
+        // Without looking past depth 1 the queen would take the pawn on d5 and be lost to the pawn on c6
+        ChessGame game = Fen.read("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        SearchResult result = Search.bestMove(game, SearchLimits.depth(1), new TranspositionTable(1));
+        Assertions.assertNotEquals(new ChessMove(new ChessPosition(1, 4), new ChessPosition(5, 4), null),
+                result.bestMove());
+    }
+
+    @Test
+    public void testNoMovesSuccess() {
+        ChessGame game = Fen.read("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        SearchResult result = Search.bestMove(game, SearchLimits.depth(3));
+        Assertions.assertNull(result.bestMove());
+        Assertions.assertEquals(0, result.score());
+    }
+
+    @Test
+    public void testNodeLimitSuccess() {
+        ChessGame game = new ChessGame();
+        long key = game.getZobristKey();
+        SearchResult result = Search.bestMove(game, SearchLimits.nodes(5000));
+        Assertions.assertTrue(result.nodes() <= 5000);
+        Assertions.assertNotNull(result.bestMove());
+        Assertions.assertEquals(key, game.getZobristKey());
+    }
+
+    @Test
+    public void testSingleThreadIsDeterministicSuccess() {
+        ChessGame game = Fen.read("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        SearchResult first = Search.bestMove(game, SearchLimits.depth(5), new TranspositionTable(4));
+        SearchResult second = Search.bestMove(game, SearchLimits.depth(5), new TranspositionTable(4));
+        Assertions.assertEquals(first.move(), second.move());
+        Assertions.assertEquals(first.score(), second.score());
+        Assertions.assertEquals(first.nodes(), second.nodes());
+    }
+
+    @Test
+    public void testHelperThreadsSuccess() {
+        ChessGame game = Fen.read("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        SearchResult result = Search.bestMove(game, SearchLimits.depth(6).withThreads(4), new TranspositionTable(4));
+        Assertions.assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null),
+                result.bestMove());
+        Assertions.assertEquals(6, result.depth());
+    }
+
+    @Test
+    public void testTimeLimitSuccess() {
+        SearchResult result = Search.bestMove(new ChessGame(), SearchLimits.millis(100));
+        Assertions.assertTrue(result.millis() < 1000, "Took " + result.millis() + " ms");
+        Assertions.assertNotNull(result.bestMove());
+        Assertions.assertTrue(result.depth() >= 1);
+    }
+
+    @Test
+    public void testSearchesWithoutTableAreIndependentSuccess() {
+        ChessGame game = new ChessGame();
+        SearchResult first = Search.bestMove(game, SearchLimits.depth(5));
+        SearchResult second = Search.bestMove(game, SearchLimits.depth(5));
+        Assertions.assertEquals(first.nodes(), second.nodes());
+        Assertions.assertEquals(first.bestMove(), second.bestMove());
+    }
+}
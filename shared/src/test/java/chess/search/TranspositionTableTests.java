@@ -0,0 +1,91 @@
+package chess.search;
+
+import chess.ChessGame;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TranspositionTableTests {
+
+    @Test
+    public void testStoreAndProbeSuccess() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(0x1234_5678_9ABC_DEF0L, 0x1ABCD, -Search.MATE + 3, 12, TranspositionTable.LOWER_BOUND);
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        Assertions.assertNotEquals(TranspositionTable.MISS, entry);
+        Assertions.assertEquals(0x1ABCD, TranspositionTable.move(entry));
+        Assertions.assertEquals(-Search.MATE + 3, TranspositionTable.score(entry));
+        Assertions.assertEquals(12, TranspositionTable.depth(entry));
+        Assertions.assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(0x1234_5678_9ABC_DEF1L));
+    }
+
+    @Test
+    public void testCapacityIsPowerOfTwoSuccess() {
+        // 3 MB of 16 byte entries rounds down to 2^17 entries
+        Assertions.assertEquals(1 << 17, new TranspositionTable(3).capacity());
+    }
+
+    @Test
+    public void testDepthPreferredReplacementSuccess() {
+        TranspositionTable table = new TranspositionTable(1);
+        long deep = 5L;
+        long shallow = deep + table.capacity();
+        table.store(deep, 1, 10, 8, TranspositionTable.EXACT);
+        table.store(shallow, 2, 20, 3, TranspositionTable.EXACT);
+        Assertions.assertNotEquals(TranspositionTable.MISS, table.probe(deep));
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(shallow));
+
+        // Results of an older search give way
+        table.newSearch();
+        table.store(shallow, 2, 20, 3, TranspositionTable.EXACT);
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(deep));
+        Assertions.assertNotEquals(TranspositionTable.MISS, table.probe(shallow));
+    }
+
+    @Test
+    public void testConcurrentAccessNeverReturnsWrongDataSuccess() throws InterruptedException {
+        // Every writer stores data derived from the key, so any hit whose data does not match was torn or mixed up
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger corrupt = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 500_000; i++) {
+                    long key = random.nextLong(1 << 20) * 0x9E3779B97F4A7C15L;
+                    if (random.nextBoolean()) {
+                        table.store(key, expectedMove(key), 0, (int) (key >>> 60), TranspositionTable.EXACT);
+                    } else {
+                        long entry = table.probe(key);
+                        if (entry != TranspositionTable.MISS && TranspositionTable.move(entry) != expectedMove(key)) {
+                            corrupt.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(0, corrupt.get());
+    }
+
+    @Test
+    public void testSearchWithSharedTableSuccess() {
+        TranspositionTable table = new TranspositionTable(4);
+        SearchResult first = Search.bestMove(new ChessGame(), SearchLimits.depth(5), table);
+        Assertions.assertTrue(table.hashfull() > 0);
+        SearchResult second = Search.bestMove(new ChessGame(), SearchLimits.depth(5), table);
+        Assertions.assertNotNull(second.bestMove());
+        Assertions.assertTrue(second.nodes() < first.nodes());
+    }
+
+    private static int expectedMove(long key) {
+        return (int) (key >>> 20) & 0x1FFFF | 1;
+    }
+}
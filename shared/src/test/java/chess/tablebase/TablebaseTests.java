@@ -0,0 +1,105 @@
+package chess.tablebase;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import chess.notation.Fen;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.SearchResult;
+import chess.search.TranspositionTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class TablebaseTests {
+
+    @TempDir
+    static Path directory;
+
+    private static Tablebases tablebases;
+
+    @BeforeAll
+    public static void generate() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator(directory);
+        for (String material : List.of("KQK", "KRK", "KPK")) {
+            generator.generate(Material.of(material));
+        }
+        tablebases = new Tablebases(directory);
+    }
+
+    @Test
+    public void testMaterialNamesSuccess() {
+        Assertions.assertEquals("KQKR", Material.of("krkq").name());
+        // KQK, KRK, KBK, KNK by promotion and KK by capture
+        Assertions.assertEquals(5, Material.of("KPK").children().size());
+        Assertions.assertTrue(Material.of("KPKR").children().contains(Material.of("KQK")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Material.of("KQ"));
+    }
+
+    @Test
+    public void testLongestMatesSuccess() throws IOException {
+        // The longest wins with WHITE to move are mate in 10 with the queen and mate in 16 with the rook
+        Assertions.assertEquals(19, longestWhiteWin("KQK"));
+        Assertions.assertEquals(31, longestWhiteWin("KRK"));
+        Assertions.assertEquals(3, tablebases.maxPieces());
+    }
+
+    @Test
+    public void testProbeSuccess() {
+        Assertions.assertEquals(new Tablebase.Result(Tablebase.Outcome.WIN, 1),
+                tablebases.probe(Fen.read("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1")).orElseThrow());
+        // Rook pawn with the defending king in the corner
+        Assertions.assertEquals(Tablebase.Outcome.DRAW,
+                tablebases.probe(Fen.read("k7/8/8/8/8/8/P7/K7 w - - 0 1")).orElseThrow().outcome());
+        // Whoever has to move gives up the opposition
+        Assertions.assertEquals(Tablebase.Outcome.DRAW,
+                tablebases.probe(Fen.read("8/3k4/8/3K4/3P4/8/8/8 w - - 0 1")).orElseThrow().outcome());
+        Assertions.assertEquals(Tablebase.Outcome.LOSS,
+                tablebases.probe(Fen.read("8/3k4/8/3K4/3P4/8/8/8 b - - 0 1")).orElseThrow().outcome());
+        // The same position with the colors swapped, looked up in the same table
+        Assertions.assertEquals(Tablebase.Outcome.LOSS,
+                tablebases.probe(Fen.read("8/8/8/3p4/3k4/8/3K4/8 w - - 0 1")).orElseThrow().outcome());
+        Assertions.assertTrue(tablebases.probe(Fen.read(Fen.START_POSITION)).isEmpty());
+    }
+
+    @Test
+    public void testBestMovesMateInStatedPliesSuccess() {
+        ChessGame game = Fen.read("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+        Tablebase.Result result = tablebases.probe(game).orElseThrow();
+        Assertions.assertEquals(Tablebase.Outcome.WIN, result.outcome());
+        for (int ply = 0; ply < result.plies(); ply++) {
+            Assertions.assertNotEquals(ChessGame.GameStatus.CHECKMATE, game.getGameStatus());
+            game.doMove(tablebases.bestMove(game));
+        }
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.getGameStatus());
+    }
+
+    @Test
+    public void testSearchUsesTablebasesSuccess() {
+        ChessGame game = Fen.read("8/8/8/8/4P3/8/4K3/6k1 w - - 0 1");
+        Tablebase.Result result = tablebases.probe(game).orElseThrow();
+        SearchResult searched = Search.bestMove(game, SearchLimits.depth(1), new TranspositionTable(1), tablebases);
+        Assertions.assertNotEquals(PackedMove.NONE, searched.move());
+        Assertions.assertEquals((result.plies() + 1) / 2, searched.mateIn());
+        Assertions.assertEquals(result.plies(), searched.pv().length);
+    }
+
+    private static int longestWhiteWin(String material) throws IOException {
+        byte[] file = Files.readAllBytes(directory.resolve(material + ".tb"));
+        int longest = 0;
+        // Values start after the magic number, the name length and the name; WHITE to move is at even indexes
+        for (int i = 5 + file[4]; i < file.length; i += 2) {
+            int value = file[i] & 0xFF;
+            if (Tablebase.isWin(value)) {
+                longest = Math.max(longest, value - 1);
+            }
+        }
+        return longest;
+    }
+}